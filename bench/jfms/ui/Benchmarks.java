@@ -0,0 +1,58 @@
+package jfms.ui;
+
+/**
+ * Helpers for the benchmarks in this directory.
+ * The benchmarks are plain programs run by the bench target of the build
+ * file; they are not part of the unit tests.
+ */
+final class Benchmarks {
+	private static final int WARMUP_RUNS = 5;
+	private static final int RUNS = 10;
+
+	private Benchmarks() {
+	}
+
+	/**
+	 * @return heap in use after garbage collection
+	 */
+	public static long usedHeap() {
+		final Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i=0; i<5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			used = Math.min(used,
+					runtime.totalMemory() - runtime.freeMemory());
+		}
+
+		return used;
+	}
+
+	/**
+	 * Runs a task repeatedly after warming up.
+	 * @return fastest run in microseconds
+	 */
+	public static long time(Runnable task) {
+		for (int i=0; i<WARMUP_RUNS; i++) {
+			task.run();
+		}
+
+		long best = Long.MAX_VALUE;
+		for (int i=0; i<RUNS; i++) {
+			final long start = System.nanoTime();
+			task.run();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+
+		return best / 1000;
+	}
+
+	public static void print(String name, long oldMicros, long newMicros) {
+		System.out.printf("%-26s old %8d us  new %8d us  (%.1fx)%n", name,
+				oldMicros, newMicros, (double)oldMicros / newMicros);
+	}
+}
@@ -0,0 +1,205 @@
+package jfms.ui;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Previous multi-pass body renderer of MessageBodyWebView, kept as a
+ * baseline for {@link RendererBenchmark}.
+ * Escapes the body and adds quote spans first, then replaces emoticons,
+ * links and highlights with one regex pass each over the resulting HTML.
+ */
+class LegacyMessageRenderer {
+	private static final Pattern URI_PATTERN = Pattern.compile(
+			"(CHK|SSK|USK)@[\\p{Alnum}~-]{43},[\\p{Alnum}~-]{43},[\\p{Alnum}~-]{7}(/[\\p{Alnum}\\-#._~%!$&'()*+,;=:@]*)*");
+
+	private final String[] icons = Emoticons.getPatterns();
+	private final Pattern emoticonPattern;
+	private final boolean showEmoticons;
+	private final boolean detectLinks;
+	private final String highlight;
+
+	public LegacyMessageRenderer(boolean showEmoticons, boolean detectLinks,
+			String highlight) {
+		this.showEmoticons = showEmoticons;
+		this.detectLinks = detectLinks;
+		this.highlight = highlight;
+
+		StringBuilder regex = new StringBuilder();
+		regex.append('(');
+		for (String i : icons) {
+			regex.append(Pattern.quote(i));
+			regex.append('|');
+		}
+		regex.setCharAt(regex.length()-1, ')');
+		emoticonPattern = Pattern.compile(regex.toString());
+	}
+
+	private static void encodeHTML(StringBuilder out, String str) {
+		for (int i = 0; i < str.length(); i++) {
+			final char c = str.charAt(i);
+			if (c > 0x7f || c=='"' || c=='&' || c=='<' || c=='>') {
+				out.append("&#");
+				out.append((int)c);
+				out.append(';');
+			} else {
+				out.append(c);
+			}
+		}
+	}
+
+	public String render(String body) {
+		StringBuilder str = new StringBuilder();
+		try (BufferedReader reader = new BufferedReader(new StringReader(body))) {
+			boolean firstLine = true;
+			boolean inQuote = false;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(">")) {
+					if (!inQuote) {
+						str.append("<span class=\"quote\">");
+					}
+					inQuote = true;
+				} else {
+					if (inQuote) {
+						str.append("</span>");
+					}
+					inQuote = false;
+				}
+
+				if (!firstLine) {
+					str.append("\n<br/>");
+				}
+				encodeHTML(str, line);
+
+				firstLine = false;
+			}
+
+			if (inQuote) {
+				str.append("</span>");
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		String html = str.toString();
+
+		if (showEmoticons) {
+			html = replaceEmoticons(html);
+		}
+
+		if (detectLinks) {
+			html = replaceLinks(html);
+		}
+
+		if (highlight != null && !highlight.isEmpty()) {
+			html = replaceHighlights(html);
+		}
+
+		return html;
+	}
+
+	private String replaceEmoticons(String input) {
+		StringBuffer output = new StringBuffer();
+		Matcher m = emoticonPattern.matcher(input);
+
+		int emoticonCount = 0;
+		while (m.find()) {
+			String group = m.group();
+
+			int codePoint = 0;
+			if (m.start() > 0) {
+				codePoint = input.codePointAt(m.start()-1);
+			}
+
+			// only allow emoticons after '>' and whitespace
+			if (codePoint != 0x3e && !Character.isWhitespace(codePoint)) {
+				continue;
+			}
+
+			for (int i=0; i<icons.length; i++ ) {
+				if (group.equals(icons[i])) {
+					final String imgTag =
+						Emoticons.getInstance().getImgTag(i);
+					if (imgTag != null) {
+						m.appendReplacement(output,
+								Matcher.quoteReplacement(imgTag));
+						emoticonCount++;
+					}
+					break;
+				}
+			}
+			if (emoticonCount >= 100) {
+				break;
+			}
+		}
+		m.appendTail(output);
+
+		return output.toString();
+	}
+
+	private String replaceLinks(String input) {
+		StringBuffer output = new StringBuffer();
+		Matcher m = URI_PATTERN.matcher(input);
+
+		while (m.find()) {
+			final String group = Matcher.quoteReplacement(m.group());
+
+			StringBuilder str = new StringBuilder();
+			str.append("<a href=\"");
+			str.append(group);
+			str.append("\" title=\"Right-click to copy link\">");
+			str.append(group);
+			str.append("</a>");
+
+			m.appendReplacement(output, str.toString());
+		}
+		m.appendTail(output);
+
+		return output.toString();
+	}
+
+	private String replaceHighlights(String input) {
+		StringBuilder escaped = new StringBuilder();
+		encodeHTML(escaped, highlight);
+		Pattern pattern = Pattern.compile(escaped.toString(),
+				Pattern.CASE_INSENSITIVE | Pattern.LITERAL);
+		StringBuffer output = new StringBuffer();
+		Matcher m = pattern.matcher(input);
+
+		while (m.find()) {
+			if (!isText(input, m.start())) {
+				// skip if we are not in text-only node (e.g., within a tag)
+				continue;
+			}
+
+			final String group = Matcher.quoteReplacement(m.group());
+
+			StringBuilder str = new StringBuilder();
+			str.append("<span class=\"highlight\">");
+			str.append(group);
+			str.append("</span>");
+
+			m.appendReplacement(output, str.toString());
+		}
+		m.appendTail(output);
+
+		return output.toString();
+	}
+
+	private boolean isText(String input, int pos) {
+		int bracketCount = 0;
+		for (int i=0; i<pos; i++) {
+			if (input.charAt(i) == '<') {
+				bracketCount++;
+			} else if (input.charAt(i) == '>') {
+				bracketCount--;
+			}
+		}
+
+		return (bracketCount % 2) == 0;
+	}
+}
@@ -0,0 +1,55 @@
+package jfms.ui;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the heap used per message header.
+ * Compares headers that only hold plain fields with the same headers
+ * after their JavaFX properties were created, which corresponds to the
+ * previous layout where every header created its properties eagerly.
+ */
+public class MessageFootprintBenchmark {
+	private static final int COUNT = 200000;
+
+	private static List<Message> createMessages() {
+		final List<String> boards = Arrays.asList("test", "fms");
+		final List<Message> messages = new ArrayList<>(COUNT);
+		for (int i=0; i<COUNT; i++) {
+			Message m = new Message();
+			m.setStoreId(i);
+			m.setSubject("subject " + i);
+			m.setFrom("author" + (i % 500) + "@SSK");
+			m.setDate(LocalDateTime.of(2017, 3, 4, 5, 6, i % 60));
+			m.setIndexDate(LocalDate.of(2017, 3, 4));
+			m.setLastReplyTimestamp(m.getTimestamp());
+			m.setMessageId("message-" + i);
+			m.setParentMessageId("message-" + (i / 2));
+			m.setReplyBoard("test");
+			m.setBoardList(boards);
+			messages.add(m);
+		}
+
+		return messages;
+	}
+
+	public static void main(String[] args) {
+		final long baseline = Benchmarks.usedHeap();
+		final List<Message> messages = createMessages();
+		final long plain = Benchmarks.usedHeap() - baseline;
+
+		for (Message m : messages) {
+			m.subjectProperty();
+		}
+		final long withProperties = Benchmarks.usedHeap() - baseline;
+
+		System.out.printf("%d headers%n", messages.size());
+		System.out.printf("plain fields      %6d bytes/header%n",
+				plain / COUNT);
+		System.out.printf("with properties   %6d bytes/header%n",
+				withProperties / COUNT);
+	}
+}
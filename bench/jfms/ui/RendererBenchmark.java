@@ -0,0 +1,47 @@
+package jfms.ui;
+
+/**
+ * Compares the single-pass {@link MessageRenderer} with the previous
+ * multi-pass renderer on bodies of different sizes.
+ */
+public class RendererBenchmark {
+	private static final String KEY =
+		"SSK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQ," +
+		"abcdefghijklmnopqrstuvwxyz~-CDEFGHIJKLMNOPQ,AQACAAE/site-1/";
+
+	private static String createBody(int length) {
+		StringBuilder body = new StringBuilder();
+		while (body.length() < length) {
+			body.append("> quoted line with <html> & a highlight :-)\n");
+			body.append("plain text line, see ").append(KEY).append('\n');
+			body.append("Regards ;)\n\n");
+		}
+
+		return body.toString();
+	}
+
+	private static void run(String name, String body, String highlight) {
+		final LegacyMessageRenderer legacy =
+			new LegacyMessageRenderer(true, true, highlight);
+		final MessageRenderer renderer = new MessageRenderer(false);
+		renderer.setShowEmoticons(true);
+		renderer.setDetectLinks(true);
+		renderer.setHighlight(highlight);
+
+		final long oldMicros = Benchmarks.time(() -> legacy.render(body));
+		final long newMicros =
+			Benchmarks.time(() -> renderer.render(body, null));
+		Benchmarks.print(name + " (" + body.length() / 1024 + " KB)",
+				oldMicros, newMicros);
+	}
+
+	public static void main(String[] args) {
+		run("small", createBody(4 * 1024), null);
+		run("medium", createBody(64 * 1024), null);
+		run("large", createBody(1024 * 1024), null);
+
+		// the previous highlight pass rescans the document for each match
+		run("small, highlight", createBody(4 * 1024), "highlight");
+		run("medium, highlight", createBody(64 * 1024), "highlight");
+	}
+}
@@ -0,0 +1,123 @@
+package jfms.ui;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the trie based {@link TokenScanner} with the previous regular
+ * expressions for emoticons and keys.
+ */
+public class ScannerBenchmark {
+	private static final String KEY =
+		"SSK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQ," +
+		"abcdefghijklmnopqrstuvwxyz~-CDEFGHIJKLMNOPQ,AQACAAE/site-1/";
+
+	private static final Pattern URI_PATTERN = Pattern.compile(
+			"(CHK|SSK|USK)@[\\p{Alnum}~-]{43},[\\p{Alnum}~-]{43},[\\p{Alnum}~-]{7}(/[\\p{Alnum}\\-#._~%!$&'()*+,;=:@]*)*");
+	private static final Pattern EMOTICON_PATTERN;
+
+	static {
+		StringBuilder str = new StringBuilder();
+		for (String icon : Emoticons.getPatterns()) {
+			if (str.length() > 0) {
+				str.append('|');
+			}
+			str.append(Pattern.quote(icon));
+		}
+		EMOTICON_PATTERN = Pattern.compile(str.toString());
+	}
+
+	private static int regexScan(String text) {
+		final Matcher keyMatcher = URI_PATTERN.matcher(text);
+		final Matcher emoticonMatcher = EMOTICON_PATTERN.matcher(text);
+
+		int tokens = 0;
+		int pos = 0;
+		while (pos < text.length()) {
+			keyMatcher.region(pos, text.length());
+			if (keyMatcher.lookingAt()) {
+				tokens++;
+				pos = keyMatcher.end();
+				continue;
+			}
+
+			emoticonMatcher.region(pos, text.length());
+			if (emoticonMatcher.lookingAt()) {
+				tokens++;
+				pos = emoticonMatcher.end();
+				continue;
+			}
+
+			pos++;
+		}
+
+		return tokens;
+	}
+
+	private static int scannerScan(String text) {
+		final TokenScanner scanner = new TokenScanner();
+
+		int tokens = 0;
+		int pos = 0;
+		while (pos < text.length()) {
+			if (scanner.scan(text, pos, text.length(), true, true) !=
+					TokenScanner.NONE) {
+				tokens++;
+				pos = scanner.getEnd();
+			} else {
+				pos++;
+			}
+		}
+
+		return tokens;
+	}
+
+	private static String repeat(String str, int length) {
+		StringBuilder body = new StringBuilder();
+		while (body.length() < length) {
+			body.append(str);
+		}
+
+		return body.toString();
+	}
+
+	private static void run(String name, String body) {
+		final int regexTokens = regexScan(body);
+		final int scannerTokens = scannerScan(body);
+		if (regexTokens != scannerTokens) {
+			throw new IllegalStateException(name + ": regex found " +
+					regexTokens + " tokens, scanner " + scannerTokens);
+		}
+
+		Benchmarks.print(name, Benchmarks.time(() -> regexScan(body)),
+				Benchmarks.time(() -> scannerScan(body)));
+	}
+
+	public static void main(String[] args) {
+		run("realistic", repeat(
+				"> Some quoted text from an earlier message :-)\n" +
+				"Thanks for the link! You can find the files at\n" +
+				KEY + "index.html\n" +
+				"or USK@ (sorry, no key). Regards ;)\n\n", 1024 * 1024));
+		run("near-miss keys", repeat(
+				"CHK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOP," +
+				"SSK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQ,x ",
+				1024 * 1024));
+		run("emoticon prefixes", repeat(":-:-:-;0:-:-", 1024 * 1024));
+
+		// the regex recurses for every path segment
+		final String path = KEY + repeat("/a.b", 1024 * 1024);
+		String regexResult;
+		try {
+			URI_PATTERN.matcher(path).lookingAt();
+			regexResult = "succeeded";
+		} catch (StackOverflowError e) {
+			regexResult = "failed with StackOverflowError";
+		}
+		final long start = System.nanoTime();
+		TokenScanner.matchKey(path, 0, path.length());
+		System.out.printf("long path (%d KB): regex %s, scanner %d us%n",
+				path.length() / 1024, regexResult,
+				(System.nanoTime() - start) / 1000);
+	}
+}
@@ -60,7 +60,8 @@ public class Config {
 	public static final int INDIRECT_TRUST_WEIGHT = 39;
 	public static final int MIN_MESSAGE_DELAY = 40;
 	public static final int MAX_MESSAGE_DELAY = 41;
-	public static final int ID_SIZE     = 42;
+	public static final int LARGE_MESSAGE_SIZE = 42;
+	public static final int ID_SIZE     = 43;
 
 	public static final int PORT_MAX = 65535;
 
@@ -293,6 +294,14 @@ public class Config {
 				Constants.DEFAULT_FALSE,
 				"Use HTML Engine (for color/emoticons support) for message " +
 				"content");
+		entries[LARGE_MESSAGE_SIZE] = new ConfigEntry(
+				"ui.large_message_size",
+				ConfigType.INT,
+				"Large message size",
+				"256",
+				new IntRangeValidator(0, 999999),
+				"Messages larger than this size (in KiB) are shown as a " +
+				"plain list of lines (0 to disable)");
 		entries[SHOW_AVATARS] = new ConfigEntry(
 				"ui.show_avatars",
 				ConfigType.BOOLEAN,
@@ -602,6 +611,10 @@ public class Config {
 		return booleanValues[WEBVIEW];
 	}
 
+	public int getLargeMessageSize() {
+		return intValues[LARGE_MESSAGE_SIZE];
+	}
+
 	public boolean getShowAvatars() {
 		return booleanValues[SHOW_AVATARS];
 	}
@@ -0,0 +1,134 @@
+package jfms.ui;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import jfms.fms.FmsManager;
+import jfms.fms.TrustManager;
+
+/**
+ * Immutable snapshot of the author information shown in the message list.
+ * Holds display name, local message trust and peer message trust of a set
+ * of identities. Building a folder requires one lookup per author instead
+ * of several lookups per message.
+ * Trust is recalculated periodically in the background, so a snapshot
+ * expires after {@link #MAX_AGE_MILLIS}; authors are then looked up again.
+ */
+class AuthorView {
+	public static final long MAX_AGE_MILLIS = 10 * 60 * 1000;
+	public static final AuthorView EMPTY =
+		new AuthorView(Collections.emptyMap(), 0);
+
+	public static class Author {
+		private final String name;
+		private final int localMessageTrust;
+		private final int peerMessageTrust;
+
+		public Author(String name, int localMessageTrust,
+				int peerMessageTrust) {
+			this.name = name;
+			this.localMessageTrust = localMessageTrust;
+			this.peerMessageTrust = peerMessageTrust;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return local message trust or -1 if none
+		 */
+		public int getLocalMessageTrust() {
+			return localMessageTrust;
+		}
+
+		/**
+		 * @return peer message trust or -1 if none
+		 */
+		public int getPeerMessageTrust() {
+			return peerMessageTrust;
+		}
+	}
+
+	private final Map<Integer, Author> authors;
+	// time the oldest author was looked up
+	private final long created;
+
+	public static AuthorView create(Collection<Integer> identityIds) {
+		return EMPTY.withIdentities(identityIds);
+	}
+
+	private AuthorView(Map<Integer, Author> authors, long created) {
+		this.authors = authors;
+		this.created = created;
+	}
+
+	/**
+	 * @param identityId ID of the identity
+	 * @return author or null if the identity is unknown
+	 */
+	public Author get(int identityId) {
+		return authors.get(identityId);
+	}
+
+	public int size() {
+		return authors.size();
+	}
+
+	public boolean isExpired() {
+		return !authors.isEmpty() &&
+			System.currentTimeMillis() - created > MAX_AGE_MILLIS;
+	}
+
+	/**
+	 * Returns a snapshot that also contains the specified identities.
+	 * Authors already present are not looked up again; if all identities
+	 * are present, this snapshot is returned.
+	 * If this snapshot is expired, all authors are looked up again.
+	 */
+	public AuthorView withIdentities(Collection<Integer> identityIds) {
+		if (isExpired()) {
+			return EMPTY.withIdentities(identityIds);
+		}
+
+		final Set<Integer> missingIds = new HashSet<>();
+		for (Integer id : identityIds) {
+			if (!authors.containsKey(id)) {
+				missingIds.add(id);
+			}
+		}
+		if (missingIds.isEmpty()) {
+			return this;
+		}
+
+		final FmsManager fmsManager = FmsManager.getInstance();
+		final Map<Integer, jfms.fms.Identity> identities =
+			fmsManager.getIdentityManager().getIdentities();
+		final TrustManager trustManager = fmsManager.getTrustManager();
+
+		final Map<Integer, Author> newAuthors = new HashMap<>(authors);
+		for (Integer id : missingIds) {
+			final jfms.fms.Identity identity = identities.get(id);
+			if (identity == null) {
+				// may become available later, don't remember
+				continue;
+			}
+
+			newAuthors.put(id, new Author(identity.getFullName(),
+						trustManager.getLocalMessageTrust(id),
+						trustManager.getPeerMessageTrust(id)));
+		}
+
+		if (newAuthors.size() == authors.size()) {
+			return this;
+		}
+
+		final long newCreated = authors.isEmpty() ?
+			System.currentTimeMillis() : created;
+		return new AuthorView(Collections.unmodifiableMap(newAuthors),
+				newCreated);
+	}
+}
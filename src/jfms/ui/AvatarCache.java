@@ -0,0 +1,199 @@
+package jfms.ui;
+
+import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import jfms.fms.FmsManager;
+
+/**
+ * Shared cache of decoded and scaled avatar images.
+ * Avatars are loaded and decoded in a background thread; the callback is
+ * invoked on the FX application thread once the image is available.
+ * Identities without a (valid) avatar are remembered for a limited time
+ * only, so an avatar published later is shown without a restart.
+ */
+class AvatarCache {
+	private static final Logger LOG = Logger.getLogger(AvatarCache.class.getName());
+	private static final int MAX_ENTRIES = 128;
+	private static final long MISSING_EXPIRY_MILLIS = 10 * 60 * 1000;
+
+	private static final AvatarCache instance = new AvatarCache();
+
+	private final Map<Long, Image> images =
+		new LinkedHashMap<>(64, 0.75f, true);
+	// keys without avatar and the time they expire
+	private final Map<Long, Long> missing =
+		new LinkedHashMap<>(64, 0.75f, true);
+	// incremented by remove, loads started before are discarded
+	private final Map<Integer, Integer> generations = new HashMap<>();
+	private final ExecutorService executor =
+		Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "AvatarLoader");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+	public static AvatarCache getInstance() {
+		return instance;
+	}
+
+	private static long getKey(int identityId, int size) {
+		return ((long)size << 32) | (identityId & 0xffffffffL);
+	}
+
+	private AvatarCache() {
+	}
+
+	/**
+	 * Returns the avatar of an identity.
+	 * If the avatar is cached, the callback is called immediately.
+	 * Otherwise the avatar is loaded in the background and the callback
+	 * is called later on the FX application thread.
+	 * @param identityId ID of the identity
+	 * @param size width and height the image is scaled to
+	 * @param callback receives the image or null if there is no avatar
+	 */
+	public void get(int identityId, int size, Consumer<Image> callback) {
+		final long key = getKey(identityId, size);
+		final boolean cached;
+		final Image cachedImage;
+		synchronized (this) {
+			cached = isCached(key);
+			cachedImage = images.get(key);
+		}
+		if (cached) {
+			// outside of the lock, the callback may take a while
+			callback.accept(cachedImage);
+			return;
+		}
+
+		executor.submit(() -> {
+			Image img;
+			final boolean loaded;
+			synchronized (this) {
+				loaded = isCached(key);
+				img = images.get(key);
+			}
+			if (!loaded) {
+				int generation;
+				do {
+					generation = getGeneration(identityId);
+					img = load(identityId, size);
+				} while (!put(key, identityId, generation, img));
+			}
+
+			final Image result = img;
+			Platform.runLater(() -> callback.accept(result));
+		});
+	}
+
+	/**
+	 * Removes all cached sizes of an avatar, e.g., after the avatar was
+	 * disabled or enabled again.
+	 */
+	public synchronized void remove(int identityId) {
+		images.keySet().removeIf(k -> (int)k.longValue() == identityId);
+		missing.keySet().removeIf(k -> (int)k.longValue() == identityId);
+		generations.merge(identityId, 1, Integer::sum);
+	}
+
+	/**
+	 * Must be called with the lock held.
+	 * @return true if the image or the absence of an avatar is cached
+	 */
+	private boolean isCached(long key) {
+		if (images.containsKey(key)) {
+			return true;
+		}
+
+		final Long expiry = missing.get(key);
+		if (expiry == null) {
+			return false;
+		}
+		if (System.currentTimeMillis() >= expiry) {
+			missing.remove(key);
+			return false;
+		}
+
+		return true;
+	}
+
+	private synchronized int getGeneration(int identityId) {
+		return generations.getOrDefault(identityId, 0);
+	}
+
+	/**
+	 * @return false if the avatar was removed while it was loaded
+	 */
+	private synchronized boolean put(long key, int identityId,
+			int generation, Image img) {
+		if (getGeneration(identityId) != generation) {
+			return false;
+		}
+
+		if (img != null) {
+			images.put(key, img);
+			trim(images);
+		} else {
+			missing.put(key,
+					System.currentTimeMillis() + MISSING_EXPIRY_MILLIS);
+			trim(missing);
+		}
+
+		return true;
+	}
+
+	private static void trim(Map<Long, ?> entries) {
+		final Iterator<Long> iter = entries.keySet().iterator();
+		while (entries.size() > MAX_ENTRIES) {
+			iter.next();
+			iter.remove();
+		}
+	}
+
+	private Image load(int identityId, int size) {
+		final byte[] data;
+		try {
+			// the disabled flag may not be written to the store yet
+			if (StoreWriter.getInstance().isAvatarDisabled(identityId)) {
+				return null;
+			}
+
+			data = FmsManager.getInstance().getIdentityManager()
+				.getAvatar(identityId);
+		} catch (Exception e) {
+			LOG.log(Level.FINE, "failed to load avatar", e);
+			return null;
+		}
+
+		if (data == null) {
+			return null;
+		}
+
+		if (!AvatarValidator.isValid(data)) {
+			LOG.log(Level.FINE, "ignoring invalid or oversized avatar of "
+					+ "identity {0}", identityId);
+			return null;
+		}
+
+		final Image img = new Image(new ByteArrayInputStream(data),
+				size, size, true, true);
+		if (img.isError()) {
+			LOG.log(Level.FINE, "failed to decode avatar of identity {0}",
+					identityId);
+			return null;
+		}
+
+		return img;
+	}
+}
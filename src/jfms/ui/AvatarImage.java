@@ -1,22 +1,17 @@
 package jfms.ui;
 
-import java.io.ByteArrayInputStream;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 
 import jfms.config.Config;
-import jfms.fms.FmsManager;
-import jfms.fms.IdentityManager;
 
 public class AvatarImage {
 	final ImageView imageView = new ImageView();
 	final Image fallbackImage;
-	final IdentityManager identityManager;
 	final int avatarSize;
 	int identityId = -1;
 
 	public AvatarImage(boolean useFallback) {
-		identityManager = FmsManager.getInstance().getIdentityManager();
 		Image genericAvatar = Icons.getInstance().getGenericAvatar();
 		if (genericAvatar != null) {
 			avatarSize = (int)genericAvatar.getWidth();
@@ -50,23 +45,22 @@ public class AvatarImage {
 
 		this.identityId = identityId;
 
-
-		byte[] data = null;
-		if (identityId != -1) {
-			data = identityManager.getAvatar(identityId);
+		// show fallback until the avatar is available
+		setImage(null);
+		if (identityId == -1) {
+			return;
 		}
 
-		Image img;
-		if (data != null) {
-			img = new Image(new ByteArrayInputStream(data),
-					avatarSize, avatarSize, true, true);
-			if (img.isError()) {
-				img = fallbackImage;
+		// decoded in background, ignore result if selection has changed
+		AvatarCache.getInstance().get(identityId, avatarSize, img -> {
+			if (identityId == this.identityId) {
+				setImage(img);
 			}
-		} else {
-			img = fallbackImage;
-		}
+		});
+	}
 
+	private void setImage(Image avatar) {
+		final Image img = avatar != null ? avatar : fallbackImage;
 		if (img != imageView.getImage()) {
 			imageView.setImage(img);
 		}
@@ -0,0 +1,155 @@
+package jfms.ui;
+
+/**
+ * Checks avatar data before it is decoded.
+ * Only the image header is parsed, so oversized images (e.g.,
+ * decompression bombs) are rejected without decoding them.
+ * Supported formats are PNG, GIF, JPEG and BMP.
+ */
+class AvatarValidator {
+	public static final int MAX_BYTES = 512 * 1024;
+	public static final int MAX_DIMENSION = 2048;
+
+	private static final byte[] PNG_SIGNATURE = {
+		(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'
+	};
+
+	private AvatarValidator() {
+	}
+
+	/**
+	 * @return true if the avatar is small enough to be decoded
+	 */
+	public static boolean isValid(byte[] data) {
+		if (data == null || data.length > MAX_BYTES) {
+			return false;
+		}
+
+		final int[] dimensions = getDimensions(data);
+		return dimensions != null &&
+			dimensions[0] > 0 && dimensions[0] <= MAX_DIMENSION &&
+			dimensions[1] > 0 && dimensions[1] <= MAX_DIMENSION;
+	}
+
+	/**
+	 * Reads the image size from the header.
+	 * @return width and height or null if the format is not supported
+	 */
+	public static int[] getDimensions(byte[] data) {
+		if (startsWith(data, PNG_SIGNATURE)) {
+			// IHDR is the first chunk
+			if (data.length < 24) {
+				return null;
+			}
+			return new int[]{readInt(data, 16), readInt(data, 20)};
+		}
+
+		if (data.length >= 10 && data[0] == 'G' && data[1] == 'I' &&
+				data[2] == 'F') {
+			return new int[]{
+				(data[6] & 0xff) | (data[7] & 0xff) << 8,
+				(data[8] & 0xff) | (data[9] & 0xff) << 8
+			};
+		}
+
+		if (data.length >= 2 && (data[0] & 0xff) == 0xff &&
+				(data[1] & 0xff) == 0xd8) {
+			return getJpegDimensions(data);
+		}
+
+		if (data.length >= 2 && data[0] == 'B' && data[1] == 'M') {
+			return getBmpDimensions(data);
+		}
+
+		return null;
+	}
+
+	private static int[] getJpegDimensions(byte[] data) {
+		int pos = 2;
+		while (pos + 4 <= data.length) {
+			if ((data[pos] & 0xff) != 0xff) {
+				return null;
+			}
+
+			final int marker = data[pos + 1] & 0xff;
+			if (marker == 0xff) {
+				// fill byte
+				pos++;
+				continue;
+			}
+
+			final int length = readShort(data, pos + 2);
+			final boolean isSOF = marker >= 0xc0 && marker <= 0xcf &&
+				marker != 0xc4 && marker != 0xc8 && marker != 0xcc;
+			if (isSOF) {
+				if (pos + 9 > data.length) {
+					return null;
+				}
+				return new int[]{readShort(data, pos + 7),
+					readShort(data, pos + 5)};
+			}
+
+			if (length < 2) {
+				return null;
+			}
+			pos += 2 + length;
+		}
+
+		return null;
+	}
+
+	private static int[] getBmpDimensions(byte[] data) {
+		// DIB header follows the 14 byte file header
+		if (data.length < 18) {
+			return null;
+		}
+
+		final int headerSize = readIntLE(data, 14);
+		if (headerSize == 12) {
+			// BITMAPCOREHEADER
+			if (data.length < 22) {
+				return null;
+			}
+			return new int[]{readShortLE(data, 18), readShortLE(data, 20)};
+		}
+
+		if (headerSize < 40 || data.length < 26) {
+			return null;
+		}
+
+		// height is negative for top-down bitmaps
+		return new int[]{readIntLE(data, 18),
+			Math.abs(readIntLE(data, 22))};
+	}
+
+	private static boolean startsWith(byte[] data, byte[] prefix) {
+		if (data.length < prefix.length) {
+			return false;
+		}
+		for (int i=0; i<prefix.length; i++) {
+			if (data[i] != prefix[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int readInt(byte[] data, int pos) {
+		return (data[pos] & 0xff) << 24 | (data[pos + 1] & 0xff) << 16 |
+			(data[pos + 2] & 0xff) << 8 | (data[pos + 3] & 0xff);
+	}
+
+	private static int readShort(byte[] data, int pos) {
+		return (data[pos] & 0xff) << 8 | (data[pos + 1] & 0xff);
+	}
+
+	private static int readIntLE(byte[] data, int pos) {
+		return (data[pos + 3] & 0xff) << 24 | (data[pos + 2] & 0xff) << 16 |
+			(data[pos + 1] & 0xff) << 8 | (data[pos] & 0xff);
+	}
+
+	private static int readShortLE(byte[] data, int pos) {
+		return (data[pos + 1] & 0xff) << 8 | (data[pos] & 0xff);
+	}
+}
@@ -0,0 +1,136 @@
+package jfms.ui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import jfms.fms.FmsManager;
+
+/**
+ * Number of messages per board.
+ * The counts are queried from the store in the background on first access
+ * and then kept up to date with the messages received and deleted and the
+ * boards created, so the board list does not have to scan the message
+ * table every time it is opened.
+ * All methods must be called from the FX application thread.
+ */
+class BoardCounters {
+	private static final BoardCounters instance = new BoardCounters(
+			() -> FmsManager.getInstance().getStore().getBoardInfos(),
+			new FolderLoader());
+
+	private final Supplier<Map<String, Integer>> query;
+	private final FolderLoader loader;
+	// null if not loaded
+	private Map<String, Integer> counts;
+	// changes made while the query is running, null if not loading
+	private Map<String, Integer> loadDeltas;
+	private final List<Consumer<Map<String, Integer>>> callbacks =
+		new ArrayList<>();
+
+	public static BoardCounters getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param query returns the number of messages per board from the store
+	 * @param loader runs the query
+	 */
+	BoardCounters(Supplier<Map<String, Integer>> query, FolderLoader loader) {
+		this.query = query;
+		this.loader = loader;
+	}
+
+	/**
+	 * Retrieves the number of messages of all boards (including boards
+	 * that are not subscribed).
+	 * @param callback receives the counts, immediately if they are
+	 * already loaded
+	 */
+	public void getCounts(Consumer<Map<String, Integer>> callback) {
+		if (counts != null) {
+			callback.accept(new HashMap<>(counts));
+			return;
+		}
+
+		callbacks.add(callback);
+		if (loadDeltas == null) {
+			load();
+		}
+	}
+
+	/**
+	 * Adds new or deleted messages to the counts.
+	 * Changes made before the counts are loaded are already contained in
+	 * the store and are picked up by the query; changes made while the
+	 * query is running are added to its result.
+	 * @param deltas number of new (positive) or deleted (negative) messages
+	 * per board
+	 */
+	public void add(Map<String, Integer> deltas) {
+		if (counts != null) {
+			addDeltas(counts, deltas);
+		} else if (loadDeltas != null) {
+			for (Map.Entry<String, Integer> e : deltas.entrySet()) {
+				loadDeltas.merge(e.getKey(), e.getValue(), Integer::sum);
+			}
+		}
+	}
+
+	/**
+	 * Adds a new board without messages.
+	 */
+	public void addBoard(String boardName) {
+		add(Collections.singletonMap(boardName, 0));
+	}
+
+	/**
+	 * Discards the counts, they are queried again on next access.
+	 */
+	public void rebuild() {
+		counts = null;
+		loadDeltas = null;
+		loader.cancel();
+		if (!callbacks.isEmpty()) {
+			load();
+		}
+	}
+
+	private void load() {
+		loadDeltas = new HashMap<>();
+		loader.load(() -> QueryStats.getInstance().time("getBoardInfos", query),
+				this::loaded);
+	}
+
+	private void loaded(Map<String, Integer> result) {
+		final Map<String, Integer> newCounts;
+		if (result != null) {
+			counts = new HashMap<>(result);
+			addDeltas(counts, loadDeltas);
+			newCounts = counts;
+		} else {
+			// query failed, try again on next access
+			newCounts = Collections.emptyMap();
+		}
+		loadDeltas = null;
+
+		final List<Consumer<Map<String, Integer>>> waiting =
+			new ArrayList<>(callbacks);
+		callbacks.clear();
+		for (Consumer<Map<String, Integer>> callback : waiting) {
+			callback.accept(new HashMap<>(newCounts));
+		}
+	}
+
+	private static void addDeltas(Map<String, Integer> counts,
+			Map<String, Integer> deltas) {
+		for (Map.Entry<String, Integer> e : deltas.entrySet()) {
+			final int count = counts.getOrDefault(e.getKey(), 0) + e.getValue();
+			counts.put(e.getKey(), Math.max(0, count));
+		}
+	}
+}
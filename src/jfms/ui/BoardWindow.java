@@ -1,5 +1,6 @@
 package jfms.ui;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -62,16 +63,15 @@ public class BoardWindow {
 			stage.setScene(scene);
 		}
 
-		table.setItems(getBoardInfoList());
-		table.scrollTo(0);
-		updateSort();
-
+		final ObservableList<BoardInfo> boardInfos = createBoardInfoList();
+		table.setItems(boardInfos);
+		loadBoardInfos(boardInfos);
 		stage.show();
 	}
 
 	public void hide() {
 		stage.hide();
-		table.getItems().clear();
+		table.setItems(FXCollections.observableArrayList());
 	}
 
 	private void createBoardTable() {
@@ -94,23 +94,40 @@ public class BoardWindow {
 		table.getSortOrder().add(nameColumn);
 	}
 
-	private ObservableList<BoardInfo> getBoardInfoList() {
+	private ObservableList<BoardInfo> createBoardInfoList() {
 		ObservableList<BoardInfo> boardInfos = FXCollections.observableArrayList(
 				(BoardInfo b) -> new Observable[]{b.isSubscribedProperty()});
+		boardInfos.addListener(new BoardChangeListener(boardInfos));
+
+		return boardInfos;
+	}
 
+	private void loadBoardInfos(ObservableList<BoardInfo> boardInfos) {
 		Store store = FmsManager.getInstance().getStore();
-		List<String> subscribedBoards = store.getSubscribedBoardNames();
-
-		for (Map.Entry<String,Integer> e : store.getBoardInfos().entrySet()) {
-			final BoardInfo boardInfo = new BoardInfo();
-			boardInfo.setName(e.getKey());
-			boardInfo.setMessageCount(e.getValue());
-			boardInfo.setIsSubscribed(subscribedBoards.contains(e.getKey()));
-			boardInfos.add(boardInfo);
-		}
+		List<String> subscribedBoards = QueryStats.getInstance().time(
+				"getSubscribedBoardNames", store::getSubscribedBoardNames);
+
+		// the counts may be queried in the background
+		BoardCounters.getInstance().getCounts(messageCounts -> {
+			if (table.getItems() != boardInfos) {
+				// window was closed or reopened meanwhile
+				return;
+			}
 
-		boardInfos.addListener(new BoardChangeListener(boardInfos));
-		return boardInfos;
+			final List<BoardInfo> loaded = new ArrayList<>();
+			for (Map.Entry<String,Integer> e : messageCounts.entrySet()) {
+				final BoardInfo boardInfo = new BoardInfo();
+				boardInfo.setName(e.getKey());
+				boardInfo.setMessageCount(e.getValue());
+				boardInfo.setIsSubscribed(
+						subscribedBoards.contains(e.getKey()));
+				loaded.add(boardInfo);
+			}
+			boardInfos.addAll(loaded);
+
+			table.scrollTo(0);
+			updateSort();
+		});
 	}
 
 	private void updateSort() {
@@ -36,7 +36,9 @@ public class EditLocalIdentityDialog {
 		final String header;
 		if (localIdentityId != -1) {
 			final Store store = FmsManager.getInstance().getStore();
-			localIdentity = store.retrieveLocalIdentity(localIdentityId);
+			localIdentity = QueryStats.getInstance().time(
+					"retrieveLocalIdentity",
+					() -> store.retrieveLocalIdentity(localIdentityId));
 			title = "Edit local identity " + localIdentity.getName();
 			header = "Configure identity\n" + localIdentity.getFullName();
 		} else {
@@ -131,7 +133,8 @@ public class EditLocalIdentityDialog {
 			updatedId.setPublishTrustList(publishTrustListCb.isSelected());
 
 			if (updatedId.getSsk() != null) {
-				store.updateLocalIdentity(updatedId);
+				QueryStats.getInstance().run("updateLocalIdentity",
+						() -> store.updateLocalIdentity(updatedId));
 			} else {
 				jfms.fms.FmsManager.getInstance().startKeyPairGeneratorThread(
 						updatedId, keyGeneratedCallback);
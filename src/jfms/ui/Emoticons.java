@@ -1,13 +1,6 @@
 package jfms.ui;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.Base64;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import jfms.config.Config;
 
@@ -26,8 +19,6 @@ public class Emoticons {
 	public static final int FACE_WINK        = 11;
 	public static final int FACE_MAX         = 12;
 
-	private static final Logger LOG = Logger.getLogger(Emoticons.class.getName());
-
 	private static final String[] icons = new String[] {
 		"0:-)", // face-angel
 		":-[",  // face-embarrassed
@@ -66,8 +57,10 @@ public class Emoticons {
 
 	private static Emoticons instance;
 
-	private Pattern pattern;
-	private String[] imgTags;
+	private final String theme;
+	private final boolean useURLs;
+	// created on first use, empty if the image is not available
+	private final String[] imgTags;
 
 
 	public static synchronized Emoticons getInstance() {
@@ -79,101 +72,68 @@ public class Emoticons {
 	}
 
 	public static byte[] getImageData(String theme, int type) {
-		final Config config = Config.getInstance();
-		String name = names[type];
-
-		ByteArrayOutputStream bos = new ByteArrayOutputStream();
-		try (InputStream is = config.getEmoticonInputStream(theme, name)) {
-			if (is == null) {
-				return null;
-			}
-			byte[] buf = new byte[1024];
-
-			int len;
-			while ((len = is.read(buf)) > 0) {
-				bos.write(buf, 0, len);
-			}
-		} catch (IOException e) {
-			LOG.log(Level.WARNING, "Failed to load " + name + " emoticon ", e);
-			return null;
-		}
+		return ImageURLStreamHandler.getInstance().getImageData(
+				getImagePath(theme, type));
+	}
 
-		return bos.toByteArray();
+	private static String getImagePath(String theme, int type) {
+		return "emoticons/" + theme + '/' + names[type];
 	}
 
 
 	private Emoticons() {
-		final String theme = Config.getInstance().getIconSet();
+		theme = Config.getInstance().getIconSet();
+		useURLs = ImageURLStreamHandler.isRegistered();
+		imgTags = new String[icons.length];
+	}
+
+	private String createImgTag(int index) {
+		byte[] data = getImageData(theme, index);
+		if (data == null) {
+			return null;
+		}
 
-		StringBuilder regex = new StringBuilder();
-		regex.append('(');
-		for (String i : icons) {
-			regex.append(Pattern.quote(i));
-			regex.append('|');
+		StringBuilder str= new StringBuilder();
+		str.append("<img src=\"");
+		if (useURLs) {
+			// short reference, image is decoded once by WebKit
+			str.append(ImageURLStreamHandler.PROTOCOL);
+			str.append(':');
+			str.append(getImagePath(theme, index));
+		} else {
+			str.append("data:image/png;base64,");
+			str.append(Base64.getEncoder().encodeToString(data));
 		}
-		regex.setCharAt(regex.length()-1, ')');
-		pattern = Pattern.compile(regex.toString());
+		str.append("\" alt=\"");
+		str.append(icons[index]);
+		str.append("\" title=\"");
+		str.append(icons[index]);
+		str.append("\">");
 
-		imgTags = new String[icons.length];
+		return str.toString();
+	}
 
-		Base64.Encoder b64Enc = Base64.getEncoder();
-		for (int i=0; i<icons.length; i++) {
-			byte[] data = getImageData(theme, i);
-			if (data == null) {
-				continue;
-			}
-
-			StringBuilder str= new StringBuilder();
-			str.append("<img src=\"data:image/png;base64,");
-			str.append(b64Enc.encodeToString(data));
-			str.append("\" alt=\"");
-			str.append(icons[i]);
-			str.append("\" title=\"");
-			str.append(icons[i]);
-			str.append("\">");
-
-			imgTags[i] = str.toString();
-		}
+	/**
+	 * @return emoticon strings, indexed like the image tags
+	 */
+	static String[] getPatterns() {
+		return icons.clone();
+	}
+
+	public static int getLength(int index) {
+		return icons[index].length();
 	}
 
-	public final String replaceByImgTags(String input) {
-		StringBuffer output = new StringBuffer();
-		Matcher m = pattern.matcher(input);
-
-		int emoticonCount = 0;
-
-		while (m.find()) {
-			String group = m.group();
-
-			int codePoint = 0;
-			if (m.start() > 0) {
-				codePoint = input.codePointAt(m.start()-1);
-			}
-
-			// only allow emoticons after '>' and whitespace
-			// the former case catches emoticons directly after HTML tags
-			if (codePoint != 0x3e && !Character.isWhitespace(codePoint)) {
-				continue;
-			}
-
-			for (int i=0; i<icons.length; i++ ) {
-				if (group.equals(icons[i])) {
-					if (imgTags[i] != null) {
-						m.appendReplacement(output, imgTags[i]);
-						emoticonCount++;
-					}
-					break;
-				}
-			}
-
-			// limit maximum number of emoticons/messages
-			// to avoid huge HTML
-			if (emoticonCount >= 100) {
-				break;
-			}
+	/**
+	 * @param index index of the emoticon
+	 * @return HTML img tag or null if the image is not available
+	 */
+	public final synchronized String getImgTag(int index) {
+		if (imgTags[index] == null) {
+			final String imgTag = createImgTag(index);
+			imgTags[index] = imgTag != null ? imgTag : "";
 		}
-		m.appendTail(output);
 
-		return output.toString();
+		return imgTags[index].isEmpty() ? null : imgTags[index];
 	}
 }
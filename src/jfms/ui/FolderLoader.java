@@ -0,0 +1,84 @@
+package jfms.ui;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+
+/**
+ * Runs folder (or other store) queries in a background thread.
+ * Only the result of the most recent request is delivered (on the FX
+ * application thread); results of superseded requests are discarded.
+ * All methods must be called from the FX application thread.
+ * <p>
+ * The UI accesses the store from the FX thread only for small lookups.
+ * Queries that may wait for the database run in a FolderLoader,
+ * prefetching in {@link MessageCache} and updates in {@link StoreWriter}.
+ */
+class FolderLoader {
+	private static final Logger LOG = Logger.getLogger(FolderLoader.class.getName());
+
+	private final ExecutorService executor =
+		Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "FolderLoader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	private Future<?> future;
+	private long generation = 0;
+
+	public <T> void load(Callable<T> task, Consumer<T> callback) {
+		cancel();
+
+		final long requestGeneration = generation;
+		future = executor.submit(() -> {
+			T result = null;
+			try {
+				result = task.call();
+			} catch (Exception e) {
+				LOG.log(Level.WARNING, "failed to load data", e);
+			}
+
+			if (isCancelled()) {
+				return;
+			}
+
+			final T finalResult = result;
+			Platform.runLater(() -> {
+				if (finish(requestGeneration)) {
+					callback.accept(finalResult);
+				}
+			});
+		});
+	}
+
+	public void cancel() {
+		generation++;
+		if (future != null) {
+			future.cancel(true);
+			future = null;
+		}
+	}
+
+	public boolean isLoading() {
+		return future != null;
+	}
+
+	public static boolean isCancelled() {
+		return Thread.currentThread().isInterrupted();
+	}
+
+	private boolean finish(long requestGeneration) {
+		if (requestGeneration != generation) {
+			LOG.log(Level.FINEST, "discarding stale folder");
+			return false;
+		}
+
+		future = null;
+		return true;
+	}
+}
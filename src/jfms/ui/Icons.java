@@ -1,69 +1,19 @@
 package jfms.ui;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 import javafx.scene.image.Image;
 
 import jfms.config.Config;
 
 public class Icons {
-	private static final Logger LOG = Logger.getLogger(Icons.class.getName());
 	private static Icons instance;
 
 	private final String theme;
 	private final boolean highDpi;
 
-	// main toolbar
-	private final Image identitiesIcon;
-	private final Image boardsIcon;
-	private final Image findIcon;
-	private final Image settingsIcon;
-
-	// notifications
-	private final Image infoIcon;
-	private final Image warnIcon;
-	private final Image closeIcon;
-
-	// message pane
-	private final Image boardFolderIcon;
-	private final Image boardIcon;
-	private final Image outboxIcon;
-	private final Image draftIcon;
-	private final Image sentIcon;
-	private final Image messageReadIcon;
-	private final Image messageUnreadIcon;
-	private final Image messageQueuedIcon;
-	private final Image messageSentIcon;
-	private final Image starredIcon;
-
-	// new message window
-	private final Image sendMessageIcon;
-	private final Image saveDraftIcon;
-
-	// message toolbar
-	private final Image newMessageIcon;
-	private final Image replyIcon;
-	private final Image threadIcon;
-	private final Image muteIcon;
-	private final Image signatureIcon;
-	private final Image linkIcon;
-	private final Image attachmentIcon;
-	private final Image emoticonIcon;
-	private final Image fontIcon;
-
-	// status bar
-	private final Image onlineIcon;
-	private final Image offlineIcon;
-
-	// avatar
-	private final Image genericAvatar;
-
 	// application icons
-	private final List<Image> appIcons = new ArrayList<>();
+	private List<Image> appIcons;
 
 
 	public enum NetworkStatus {
@@ -89,59 +39,9 @@ public class Icons {
 	private Icons() {
 		theme = Config.getInstance().getIconSet();
 
-		identitiesIcon = getImage("user-properties.png");
+		// icons are loaded on first access
+		final Image identitiesIcon = getIdentitiesIcon();
 		highDpi = identitiesIcon != null && identitiesIcon.getWidth() > 30;
-
-		boardsIcon = getImage("applications-internet_22x22.png");
-		findIcon = getImage("edit-find.png");
-		settingsIcon = getImage("configure.png");
-
-		infoIcon = getImage("dialog-information.png");
-		warnIcon = getImage("dialog-warning.png");
-		closeIcon = getImage("dialog-close.png");
-
-		boardFolderIcon = getImage("folder-remote.png");
-		boardIcon = getImage("folder.png");
-		outboxIcon = getImage("mail-folder-outbox.png");
-		draftIcon = getImage("folder-text.png");
-		sentIcon = getImage("mail-folder-sent.png");
-		messageReadIcon = getImage("mail-read.png");
-		messageUnreadIcon = getImage("mail-unread.png");
-		messageQueuedIcon = getImage("mail-queued.png");
-		messageSentIcon = getImage("mail-sent.png");
-		starredIcon = getImage("rating.png");
-
-		sendMessageIcon = getImage("mail-send.png");
-		saveDraftIcon = getImage("document-save.png");
-
-		newMessageIcon = getImage("mail-message-new.png");
-		replyIcon = getImage("mail-reply-sender.png");
-		threadIcon = getImage("view-list-tree.png");
-		muteIcon = getImage("audio-volume-muted.png");
-		signatureIcon = getImage("document-sign.png");
-		linkIcon = getImage("applications-internet.png");
-		attachmentIcon = getImage("mail-attachment.png");
-		emoticonIcon = getImage("face-smile.png");
-		fontIcon = getImage("gtk-select-font.png");
-
-		onlineIcon = getImage("network-connect.png");
-		offlineIcon = getImage("network-disconnect.png");
-
-		int genericAvatarSize = 75;
-		if (highDpi) {
-			genericAvatarSize *= 2;
-		}
-		genericAvatar = getImage("user-identity.png",
-				genericAvatarSize, genericAvatarSize, false);
-
-		String[] appIconNames = new String[]{
-			"jfms_16.png", "jfms_32.png", "jfms_64.png"};
-		for (String s : appIconNames) {
-			Image img = getImage(s, -1, -1, false);
-			if (img != null) {
-				appIcons.add(img);
-			}
-		}
 	}
 
 	public boolean isHighDpi() {
@@ -149,29 +49,29 @@ public class Icons {
 	}
 
 	public Image getIdentitiesIcon() {
-		return identitiesIcon;
+		return getImage("user-properties.png");
 	}
 
 	public Image getBoardsIcon() {
-		return boardsIcon;
+		return getImage("applications-internet_22x22.png");
 	}
 
 	public Image getFindIcon() {
-		return findIcon;
+		return getImage("edit-find.png");
 	}
 
 	public Image getSettingsIcon() {
-		return settingsIcon;
+		return getImage("configure.png");
 	}
 
 	public Image getNotificationIcon(NotificationType type) {
 		Image image = null;
 		switch (type) {
 		case WARNING:
-			image = warnIcon;
+			image = getImage("dialog-warning.png");
 			break;
 		case INFORMATION:
-			image = infoIcon;
+			image = getImage("dialog-information.png");
 			break;
 		}
 
@@ -179,31 +79,31 @@ public class Icons {
 	}
 
 	public Image getCloseIcon() {
-		return closeIcon;
+		return getImage("dialog-close.png");
 	}
 
 	public Image getBoardFolderIcon() {
-		return boardFolderIcon;
+		return getImage("folder-remote.png");
 	}
 
 	public Image getBoardIcon() {
-		return boardIcon;
+		return getImage("folder.png");
 	}
 
 	public Image getOutboxIcon() {
-		return outboxIcon;
+		return getImage("mail-folder-outbox.png");
 	}
 
 	public Image getDraftIcon() {
-		return draftIcon;
+		return getImage("folder-text.png");
 	}
 
 	public Image getSentIcon() {
-		return sentIcon;
+		return getImage("mail-folder-sent.png");
 	}
 
 	public Image getStarredIcon() {
-		return starredIcon;
+		return getImage("rating.png");
 	}
 
 
@@ -211,16 +111,16 @@ public class Icons {
 		Image image = null;
 		switch (status) {
 		case READ:
-			image = messageReadIcon;
+			image = getImage("mail-read.png");
 			break;
 		case UNREAD:
-			image = messageUnreadIcon;
+			image = getImage("mail-unread.png");
 			break;
 		case QUEUED:
-			image = messageQueuedIcon;
+			image = getImage("mail-queued.png");
 			break;
 		case SENT:
-			image = messageSentIcon;
+			image = getImage("mail-sent.png");
 			break;
 		}
 
@@ -228,57 +128,57 @@ public class Icons {
 	}
 
 	public Image getSendMessageIcon() {
-		return sendMessageIcon;
+		return getImage("mail-send.png");
 	}
 
 	public Image getSaveDraftIcon() {
-		return saveDraftIcon;
+		return getImage("document-save.png");
 	}
 
 	public Image getNewMessageIcon() {
-		return newMessageIcon;
+		return getImage("mail-message-new.png");
 	}
 
 	public Image getReplyIcon() {
-		return replyIcon;
+		return getImage("mail-reply-sender.png");
 	}
 
 	public Image getThreadIcon() {
-		return threadIcon;
+		return getImage("view-list-tree.png");
 	}
 
 	public Image getMuteIcon() {
-		return muteIcon;
+		return getImage("audio-volume-muted.png");
 	}
 
 	public Image getEmoticonIcon() {
-		return emoticonIcon;
+		return getImage("face-smile.png");
 	}
 
 	public Image getFontIcon() {
-		return fontIcon;
+		return getImage("gtk-select-font.png");
 	}
 
 	public Image getSignatureIcon() {
-		return signatureIcon;
+		return getImage("document-sign.png");
 	}
 
 	public Image getLinkIcon() {
-		return linkIcon;
+		return getImage("applications-internet.png");
 	}
 
 	public Image getAttachmentIcon() {
-		return attachmentIcon;
+		return getImage("mail-attachment.png");
 	}
 
 	public Image getNetworkIcon(NetworkStatus status) {
 		Image image = null;
 		switch (status) {
 		case ONLINE:
-			image = onlineIcon;
+			image = getImage("network-connect.png");
 			break;
 		case OFFLINE:
-			image = offlineIcon;
+			image = getImage("network-disconnect.png");
 			break;
 		}
 
@@ -286,34 +186,35 @@ public class Icons {
 	}
 
 	public Image getGenericAvatar() {
-		return genericAvatar;
-	}
+		int genericAvatarSize = 75;
+		if (highDpi) {
+			genericAvatarSize *= 2;
+		}
 
-	public List<Image> getAppIcons() {
-		return appIcons;
+		return getImage("user-identity.png",
+				genericAvatarSize, genericAvatarSize, false);
 	}
 
-	private Image getImage(String name,
-			double requestedWidth, double requestedHeight, boolean allowHiDpi) {
-
-		final Config config = Config.getInstance();
-		Image image = null;
-		try (InputStream is =
-				config.getIconInputStream(theme, name, allowHiDpi)) {
-
-			if (is != null) {
-				if (requestedWidth > 0 && requestedHeight > 0) {
-					image = new Image(is, requestedWidth, requestedHeight,
-							true, true);
-				} else {
-					image = new Image(is);
+	public synchronized List<Image> getAppIcons() {
+		if (appIcons == null) {
+			appIcons = new ArrayList<>();
+			String[] appIconNames = new String[]{
+				"jfms_16.png", "jfms_32.png", "jfms_64.png"};
+			for (String s : appIconNames) {
+				Image img = getImage(s, -1, -1, false);
+				if (img != null) {
+					appIcons.add(img);
 				}
 			}
-		} catch (IOException e) {
-			LOG.log(Level.WARNING, "Failed to load " + name + " icon ", e);
 		}
 
-		return image;
+		return appIcons;
+	}
+
+	private Image getImage(String name,
+			double requestedWidth, double requestedHeight, boolean allowHiDpi) {
+		return ImageRegistry.getInstance().getIcon(theme, name,
+				requestedWidth, requestedHeight, allowHiDpi);
 	}
 
 	private Image getImage(String name) {
@@ -37,8 +37,16 @@ public class IdentityDetailsPane {
 	private final TextField lastSeenText = new TextField();
 	private final TextField messageCountText = new TextField();
 
+	private final FolderLoader statisticsLoader = new FolderLoader();
+
 	private int identityId = -1;
 
+	private static class Statistics {
+		private AddedInfo addedInfo;
+		private DateIndex lastSeenDateIndex;
+		private int messageCount;
+	}
+
 	public IdentityDetailsPane() {
 		Label nameLabel = new Label("Name");
 		nameText.setEditable(false);
@@ -59,8 +67,8 @@ public class IdentityDetailsPane {
 		disableAvatarCb.setDisable(true);
 		disableAvatarCb.selectedProperty().addListener(
 			(ov, oldVal, newVal) -> {
-				final Store store = FmsManager.getInstance().getStore();
-				store.setAvatarDisabled(identityId, newVal);
+				StoreWriter.getInstance().setAvatarDisabled(identityId, newVal);
+				AvatarCache.getInstance().remove(identityId);
 			});
 
 		Label freesiteLabel = new Label("Freesite");
@@ -123,6 +131,7 @@ public class IdentityDetailsPane {
 		}
 
 		if (id == null) {
+			statisticsLoader.cancel();
 			nameText.setText("");
 			sskText.setText("");
 			signatureText.setText("");
@@ -153,8 +162,8 @@ public class IdentityDetailsPane {
 		avatarText.setText(id.getAvatar());
 		avatar.setIdentityId(identityId);
 		disableAvatarCb.setDisable(id.getAvatar() == null);
-		final Store store = FmsManager.getInstance().getStore();
-		boolean isDisabled = store.isAvatarDisabled(identityId);
+		boolean isDisabled =
+			StoreWriter.getInstance().isAvatarDisabled(identityId);
 		disableAvatarCb.setSelected(isDisabled);
 
 		if (id.getFreesiteEdition() >= 0) {
@@ -172,17 +181,46 @@ public class IdentityDetailsPane {
 		publishTrustListCb.setSelected(id.getPublishTrustList());
 		publishBoardListCb.setSelected(id.getPublishBoardList());
 
-		AddedInfo addedInfo = store.getAddedInfo(identityId);
+		// don't block the FX thread while the store is busy with downloads
+		addedByText.clear();
+		dateAddedText.clear();
+		lastSeenText.clear();
+		messageCountText.clear();
+		final int requestedId = identityId;
+		statisticsLoader.load(() -> loadStatistics(requestedId),
+				this::showStatistics);
+	}
+
+	private static Statistics loadStatistics(int identityId) {
+		final Store store = FmsManager.getInstance().getStore();
+		final QueryStats queryStats = QueryStats.getInstance();
+		Statistics stats = new Statistics();
+		stats.addedInfo = queryStats.time("getAddedInfo",
+				() -> store.getAddedInfo(identityId));
+		stats.lastSeenDateIndex = queryStats.time("getLastRequestDateIndex",
+				() -> store.getLastRequestDateIndex(identityId,
+					RequestType.IDENTITY));
+		stats.messageCount = queryStats.time("getMessageCount",
+				() -> store.getMessageCount(identityId));
+
+		return stats;
+	}
+
+	private void showStatistics(Statistics stats) {
+		if (stats == null) {
+			return;
+		}
+
+		AddedInfo addedInfo = stats.addedInfo;
 		addedByText.setText(addedInfo.getAddedByAsString());
 		dateAddedText.setText(
 				addedInfo.getDateAdded().format(DateTimeFormatter.ISO_LOCAL_DATE));
-		DateIndex lastSeenDateIndex = store.getLastRequestDateIndex(identityId, RequestType.IDENTITY);
-		LocalDate lastSeen = lastSeenDateIndex.getDate();
+		LocalDate lastSeen = stats.lastSeenDateIndex.getDate();
 		if (lastSeen.equals(Constants.FALLBACK_DATE)) {
 			lastSeenText.setText("never");
 		} else {
 			lastSeenText.setText(lastSeen.format(DateTimeFormatter.ISO_LOCAL_DATE));
 		}
-		messageCountText.setText(Integer.toString(store.getMessageCount(identityId)));
+		messageCountText.setText(Integer.toString(stats.messageCount));
 	}
 }
@@ -136,7 +136,8 @@ public class IdentityTrustPane {
 	public void updateTrustCb() {
 		final int defaultId = Config.getInstance().getDefaultId();
 		final Store store = FmsManager.getInstance().getStore();
-		localIds = store.retrieveLocalIdentities();
+		localIds = QueryStats.getInstance().time("retrieveLocalIdentities",
+				store::retrieveLocalIdentities);
 
 		trustlistCb.setValue("");
 		ObservableList<String> ids = FXCollections.observableArrayList();
@@ -190,7 +191,9 @@ public class IdentityTrustPane {
 		jfms.fms.Trust trust = null;
 		if (!disabled) {
 			final Store store = FmsManager.getInstance().getStore();
-			trust = store.getLocalTrust(localIdentityId, selectedIdentityId);
+			trust = QueryStats.getInstance().time("getLocalTrust",
+					() -> store.getLocalTrust(localIdentityId,
+						selectedIdentityId));
 		}
 		if (trust == null) {
 			trust = new jfms.fms.Trust();
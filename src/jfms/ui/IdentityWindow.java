@@ -177,8 +177,11 @@ public class IdentityWindow {
 		int localIdentityId = trustPane.getLocalIdentityId(localIdentityName);
 		if (localIdentityId != -1) {
 			final Store store = FmsManager.getInstance().getStore();
-			localTrustListTrust = store.getLocalTrustListTrusts(localIdentityId, 0);
-			localMessageTrust = store.getLocalMessageTrusts(localIdentityId);
+			final QueryStats stats = QueryStats.getInstance();
+			localTrustListTrust = stats.time("getLocalTrustListTrusts",
+					() -> store.getLocalTrustListTrusts(localIdentityId, 0));
+			localMessageTrust = stats.time("getLocalMessageTrusts",
+					() -> store.getLocalMessageTrusts(localIdentityId));
 		} else {
 			localTrustListTrust = Collections.emptyMap();
 			localMessageTrust = Collections.emptyMap();
@@ -0,0 +1,147 @@
+package jfms.ui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.scene.image.Image;
+
+import jfms.config.Config;
+
+/**
+ * Shared registry of icon images.
+ * Images are keyed by theme, name, size and scale and are loaded on first
+ * access. If a high DPI ({@code @2x}) variant is requested but does not
+ * exist, the normal image is scaled instead.
+ */
+class ImageRegistry {
+	private static final Logger LOG = Logger.getLogger(ImageRegistry.class.getName());
+
+	private static final ImageRegistry instance = new ImageRegistry();
+
+	private final Map<Key, Image> images = new ConcurrentHashMap<>();
+	// ConcurrentHashMap does not allow null values
+	private final Map<Key, Boolean> missing = new ConcurrentHashMap<>();
+
+	private static final class Key {
+		private final String theme;
+		private final String name;
+		private final double width;
+		private final double height;
+		private final boolean allowHiDpi;
+
+		public Key(String theme, String name, double width, double height,
+				boolean allowHiDpi) {
+			this.theme = theme;
+			this.name = name;
+			this.width = width;
+			this.height = height;
+			this.allowHiDpi = allowHiDpi;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			final Key other = (Key)obj;
+			return theme.equals(other.theme) && name.equals(other.name) &&
+				width == other.width && height == other.height &&
+				allowHiDpi == other.allowHiDpi;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(theme, name, width, height, allowHiDpi);
+		}
+	}
+
+	public static ImageRegistry getInstance() {
+		return instance;
+	}
+
+	private ImageRegistry() {
+	}
+
+	/**
+	 * Returns an icon, loading it on first access.
+	 * @param theme icon set
+	 * @param name file name of the icon
+	 * @param width requested width or -1 for the natural size
+	 * @param height requested height or -1 for the natural size
+	 * @param allowHiDpi whether the @2x variant may be used
+	 * @return image or null if the icon does not exist
+	 */
+	public Image getIcon(String theme, String name, double width,
+			double height, boolean allowHiDpi) {
+		final Key key = new Key(theme, name, width, height, allowHiDpi);
+		Image image = images.get(key);
+		if (image != null || missing.containsKey(key)) {
+			return image;
+		}
+
+		image = loadIcon(key);
+		if (image == null) {
+			missing.put(key, Boolean.TRUE);
+			return null;
+		}
+
+		final Image previous = images.putIfAbsent(key, image);
+		return previous != null ? previous : image;
+	}
+
+	public int size() {
+		return images.size();
+	}
+
+	private Image loadIcon(Key key) {
+		final Config config = Config.getInstance();
+		final boolean hiDpi = key.allowHiDpi && config.getForceHiDpiIcons();
+
+		Image image = loadImage(config.getIconInputStream(key.theme,
+					key.name, key.allowHiDpi), key.width, key.height);
+		if (image == null && hiDpi) {
+			// no @2x variant available, scale the normal image
+			image = loadImage(config.getIconInputStream(key.theme, key.name,
+						false), key.width, key.height);
+			if (image != null && key.width <= 0) {
+				image = loadImage(config.getIconInputStream(key.theme,
+							key.name, false),
+						2 * image.getWidth(), 2 * image.getHeight());
+			}
+		}
+
+		if (image == null) {
+			LOG.log(Level.FINE, "Icon {0} not found", key.name);
+		}
+
+		return image;
+	}
+
+	private Image loadImage(InputStream input, double width, double height) {
+		if (input == null) {
+			return null;
+		}
+
+		Image image;
+		try (InputStream is = input) {
+			if (width > 0 && height > 0) {
+				image = new Image(is, width, height, true, true);
+			} else {
+				image = new Image(is);
+			}
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to load icon", e);
+			return null;
+		}
+
+		return image.isError() ? null : image;
+	}
+}
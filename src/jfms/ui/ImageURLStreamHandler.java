@@ -0,0 +1,163 @@
+package jfms.ui;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import jfms.config.Config;
+
+/**
+ * Serves icon and emoticon images to the WebView.
+ * URLs have the form {@code jfms:emoticons/<theme>/<name>} or
+ * {@code jfms:icons/<theme>/<name>}. Image data is read once and kept in
+ * memory, so documents only contain short references and WebKit can cache
+ * the decoded images by URL.
+ */
+class ImageURLStreamHandler extends URLStreamHandler {
+	public static final String PROTOCOL = "jfms";
+
+	private static final Logger LOG = Logger.getLogger(ImageURLStreamHandler.class.getName());
+	private static final byte[] NOT_FOUND = new byte[0];
+
+	private static final ImageURLStreamHandler instance =
+		new ImageURLStreamHandler();
+	private static boolean registered = false;
+
+	private final Map<String, byte[]> images = new ConcurrentHashMap<>();
+
+	private class ImageURLConnection extends URLConnection {
+		private byte[] data;
+
+		public ImageURLConnection(URL url) {
+			super(url);
+		}
+
+		@Override
+		public void connect() throws IOException {
+			if (connected) {
+				return;
+			}
+
+			data = getImageData(url.getFile());
+			if (data == null) {
+				throw new FileNotFoundException(url.toString());
+			}
+			connected = true;
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			connect();
+			return new ByteArrayInputStream(data);
+		}
+
+		@Override
+		public String getContentType() {
+			return "image/png";
+		}
+
+		@Override
+		public long getContentLengthLong() {
+			return data != null ? data.length : -1;
+		}
+	}
+
+	/**
+	 * Installs the handler for the jfms protocol.
+	 * Must be called before the first URL with this protocol is created.
+	 */
+	public static synchronized void register() {
+		if (registered) {
+			return;
+		}
+
+		try {
+			URL.setURLStreamHandlerFactory(protocol ->
+					PROTOCOL.equals(protocol) ? instance : null);
+			registered = true;
+		} catch (Error e) {
+			LOG.log(Level.WARNING, "failed to register URL handler", e);
+		}
+	}
+
+	public static synchronized boolean isRegistered() {
+		return registered;
+	}
+
+	public static ImageURLStreamHandler getInstance() {
+		return instance;
+	}
+
+	private static byte[] readAll(InputStream is) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+
+		int len;
+		while ((len = is.read(buf)) > 0) {
+			bos.write(buf, 0, len);
+		}
+
+		return bos.toByteArray();
+	}
+
+	private ImageURLStreamHandler() {
+	}
+
+	/**
+	 * @param path path of the image, e.g., emoticons/theme/face-smile.png
+	 * @return image data or null if the image does not exist
+	 */
+	public byte[] getImageData(String path) {
+		final byte[] data = images.computeIfAbsent(path, this::loadImageData);
+		return data != NOT_FOUND ? data : null;
+	}
+
+	@Override
+	protected URLConnection openConnection(URL url) {
+		return new ImageURLConnection(url);
+	}
+
+	private byte[] loadImageData(String path) {
+		final String[] parts = path.split("/", 3);
+		if (parts.length != 3) {
+			LOG.log(Level.INFO, "invalid image path: {0}", path);
+			return NOT_FOUND;
+		}
+
+		final Config config = Config.getInstance();
+		final String theme = parts[1];
+		final String name = parts[2];
+		final InputStream input;
+		switch (parts[0]) {
+		case "emoticons":
+			input = config.getEmoticonInputStream(theme, name);
+			break;
+		case "icons":
+			input = config.getIconInputStream(theme, name);
+			break;
+		default:
+			input = null;
+			break;
+		}
+
+		if (input == null) {
+			return NOT_FOUND;
+		}
+
+		try (InputStream is = input) {
+			return readAll(is);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Failed to load image " + path, e);
+			return NOT_FOUND;
+		}
+	}
+}
@@ -65,6 +65,7 @@ public final class JfmsApplication extends Application {
 		LOG.log(Level.FINEST, "Starting UI");
 
 		loadProperties();
+		ImageURLStreamHandler.register();
 		final String version = properties.getProperty(JFMS_VERSION_PROPERTY);
 		LOG.log(Level.INFO, "jfms version is {0}", version);
 
@@ -116,12 +117,12 @@ public final class JfmsApplication extends Application {
 			boardWindow = new BoardWindow();
 			identityWindow = new IdentityWindow();
 			localIdentityPane = new LocalIdentityPane();
-			maintenanceWindow = new MaintenanceWindow();
 
 			StatusBar statusBar = new StatusBar();
 
 			BorderPane borderPane = new BorderPane();
 			borderPane.setCenter(addCenterPane());
+			maintenanceWindow = new MaintenanceWindow(newsPane);
 			borderPane.setTop(addMenuBar());
 			borderPane.setBottom(statusBar.getNode());
 
@@ -184,6 +185,9 @@ public final class JfmsApplication extends Application {
 
 		newsPane.saveConfig(new WindowInfo(width, height,
 					primaryStage.isMaximized()));
+		StoreWriter.getInstance().shutdown();
+		LOG.log(Level.INFO, "store query statistics:{0}",
+				QueryStats.getInstance());
 		fmsManager.shutdown();
 	}
 
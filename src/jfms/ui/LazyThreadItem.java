@@ -0,0 +1,75 @@
+package jfms.ui;
+
+import java.util.List;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Top level node of a collapsed thread.
+ * The replies are prepared in the background but only attached to the
+ * tree when the thread is expanded or {@link #load} is called, so sorting
+ * and traversing the message tree is proportional to the number of
+ * threads rather than the number of messages. {@link #getChildren} does
+ * not attach the replies; code that needs them must check
+ * {@link #isLoaded}.
+ */
+class LazyThreadItem extends TreeItem<Message> {
+	private final ThreadIndex index;
+	private List<TreeItem<Message>> replies;
+	private MessageComparator comparator;
+
+	/**
+	 * @param message message of the thread root
+	 * @param replies detached subtrees of the direct replies
+	 * @param index index the replies are registered in
+	 */
+	public LazyThreadItem(Message message, List<TreeItem<Message>> replies,
+			ThreadIndex index) {
+		super(message);
+		this.replies = replies;
+		this.index = index;
+
+		expandedProperty().addListener((ov, oldVal, newVal) -> {
+			if (newVal) {
+				load();
+			}
+		});
+	}
+
+	public boolean isLoaded() {
+		return replies == null;
+	}
+
+	/**
+	 * Sets the sort order that is applied when the replies are attached.
+	 */
+	public void setComparator(MessageComparator comparator) {
+		this.comparator = comparator;
+	}
+
+	@Override
+	public boolean isLeaf() {
+		if (replies != null) {
+			return replies.isEmpty();
+		}
+
+		return super.isLeaf();
+	}
+
+	/**
+	 * Attaches the replies to the tree if not done yet.
+	 */
+	public void load() {
+		if (replies == null) {
+			return;
+		}
+
+		final List<TreeItem<Message>> children = replies;
+		replies = null;
+
+		index.removeLazyThread(children);
+		getChildren().addAll(children);
+		if (comparator != null) {
+			comparator.sortTree(this);
+		}
+	}
+}
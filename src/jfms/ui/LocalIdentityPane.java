@@ -71,14 +71,17 @@ public class LocalIdentityPane {
 
 		@Override
 		public void onChanged(ListChangeListener.Change<? extends LocalIdentity> c) {
+			// written immediately: the FMS layer reads the active flag
+			// directly from the store, e.g., when inserting messages
 			final Store store = FmsManager.getInstance().getStore();
 
 			while (c.next()) {
 				if (c.wasUpdated()) {
 					for (int i=c.getFrom(); i<c.getTo(); i++) {
 						LocalIdentity id = list.get(i);
-						store.setLocalIdentityActive(id.getId(),
-								id.getIsActive());
+						QueryStats.getInstance().run("setLocalIdentityActive",
+								() -> store.setLocalIdentityActive(id.getId(),
+									id.getIsActive()));
 					}
 				}
 			}
@@ -291,7 +294,8 @@ public class LocalIdentityPane {
 				return ;
 			}
 			final Store store = FmsManager.getInstance().getStore();
-			Set<String> existingSSKs = store.retrieveLocalIdentities()
+			Set<String> existingSSKs = QueryStats.getInstance()
+				.time("retrieveLocalIdentities", store::retrieveLocalIdentities)
 				.entrySet().stream()
 				.map(i -> i.getValue().getSsk())
 				.collect(Collectors.toSet());
@@ -312,7 +316,9 @@ public class LocalIdentityPane {
 	private void showExportDialog() {
 		final Store store = FmsManager.getInstance().getStore();
 		final List<jfms.fms.LocalIdentity> localIds =
-			store.retrieveLocalIdentities().entrySet().stream()
+			QueryStats.getInstance()
+			.time("retrieveLocalIdentities", store::retrieveLocalIdentities)
+			.entrySet().stream()
 			.map(Map.Entry::getValue)
 			.collect(Collectors.toList());
 
@@ -417,7 +423,8 @@ public class LocalIdentityPane {
 
 		final Store store = FmsManager.getInstance().getStore();
 		int numericId = id.getId();
-		store.deleteLocalIdentity(numericId);
+		QueryStats.getInstance().run("deleteLocalIdentity",
+				() -> store.deleteLocalIdentity(numericId));
 
 		if (isDefaultId(numericId)) {
 			final Config config = Config.getInstance();
@@ -431,7 +438,8 @@ public class LocalIdentityPane {
 	private void updateListItems() {
 		final Store store = FmsManager.getInstance().getStore();
 		final Map<Integer, jfms.fms.LocalIdentity> storeIds =
-			store.retrieveLocalIdentities();
+			QueryStats.getInstance().time("retrieveLocalIdentities",
+					store::retrieveLocalIdentities);
 
 		ObservableList<LocalIdentity> items = FXCollections.observableArrayList(
 				(LocalIdentity i) -> new Observable[]{i.isActiveProperty()});
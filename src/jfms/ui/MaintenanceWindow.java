@@ -22,8 +22,10 @@ public class MaintenanceWindow {
 	private final Label removeAllCountText = new Label();
 	private final Button removeInactiveButton;
 	private final Label removeInactiveCountText = new Label();
+	private final NewsPane newsPane;
 
-	public MaintenanceWindow() {
+	public MaintenanceWindow(NewsPane newsPane) {
+		this.newsPane = newsPane;
 		grid.setHgap(10);
 		grid.setVgap(5);
 		grid.setPadding(new Insets(2, 5, 2, 5));
@@ -41,7 +43,9 @@ public class MaintenanceWindow {
 		removeAllButton.setOnAction(e -> {
 			final LocalDate today = LocalDate.now();
 			final Store store = FmsManager.getInstance().getStore();
-			store.removeIdentities(today, true);
+			QueryStats.getInstance().run("removeIdentities",
+					() -> store.removeIdentities(today, true));
+			BoardCounters.getInstance().rebuild();
 		});
 
 		Label removeInactiveLabel = new Label("Remove only identities that were not seen recently");
@@ -49,15 +53,24 @@ public class MaintenanceWindow {
 		removeAllButton.setOnAction(e -> {
 			final LocalDate today = LocalDate.now();
 			final Store store = FmsManager.getInstance().getStore();
-			store.removeIdentities(today, false);
+			QueryStats.getInstance().run("removeIdentities",
+					() -> store.removeIdentities(today, false));
+			BoardCounters.getInstance().rebuild();
 		});
 
+		Label rebuildCountersLabel = new Label("Rebuild message counts of boards");
+		Button rebuildCountersButton = new Button("Rebuild");
+		rebuildCountersButton.setOnAction(e -> newsPane.rebuildBoardCounters());
+
 		int row = 0;
 		grid.addRow(++row, removeAllLabel, removeAllCountText, removeAllButton);
 		grid.addRow(++row, removeInactiveLabel, removeInactiveCountText,
 				removeInactiveButton);
 		grid.add(new Separator(), 0, ++row, 3, 1);
 		grid.add(infoLabel, 0, ++row, 3, 1);
+		grid.add(new Separator(), 0, ++row, 3, 1);
+		grid.addRow(++row, rebuildCountersLabel, new Label(),
+				rebuildCountersButton);
 	}
 
 	public void show(Window ownerWindow) {
@@ -77,10 +90,13 @@ public class MaintenanceWindow {
 
 		final LocalDate today = LocalDate.now();
 		final Store store = FmsManager.getInstance().getStore();
-		int removeInactiveCount = store.countRemovableIdentities(today, true);
+		final QueryStats stats = QueryStats.getInstance();
+		int removeInactiveCount = stats.time("countRemovableIdentities",
+				() -> store.countRemovableIdentities(today, true));
 		removeInactiveCountText.setText(Integer.toString(removeInactiveCount));
 
-		int removeAllCount = store.countRemovableIdentities(today, false);
+		int removeAllCount = stats.time("countRemovableIdentities",
+				() -> store.countRemovableIdentities(today, false));
 		removeAllCountText.setText(Integer.toString(removeAllCount));
 
 		stage.show();
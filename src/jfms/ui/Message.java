@@ -1,5 +1,10 @@
 package jfms.ui;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -10,8 +15,15 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
+/**
+ * Header of a message shown in the message list.
+ * Values are stored in plain fields; JavaFX properties are only created
+ * when requested (e.g., for visible rows or bindings). Once created, the
+ * properties hold the current values.
+ */
 public class Message {
 	private static final Logger LOG = Logger.getLogger(Message.class.getName());
+	private static final long NO_DATE = Long.MIN_VALUE;
 
 	public enum Status {
 		UNREAD,
@@ -21,74 +33,184 @@ public class Message {
 		SENT
 	}
 
+	private static class Properties {
+		private final StringProperty subject = new SimpleStringProperty();
+		private final StringProperty from = new SimpleStringProperty();
+		private final StringProperty fromShort = new SimpleStringProperty();
+		private final StringProperty date = new SimpleStringProperty();
+		private final StringProperty messageId = new SimpleStringProperty();
+		private final StringProperty parentMessageId = new SimpleStringProperty();
+		private final IntegerProperty localTrustLevel = new SimpleIntegerProperty();
+		private final IntegerProperty peerTrustLevel = new SimpleIntegerProperty();
+		private final StringProperty indexDate = new SimpleStringProperty();
+		private final IntegerProperty index = new SimpleIntegerProperty();
+		private final StringProperty replyBoard = new SimpleStringProperty();
+		private final StringProperty boards = new SimpleStringProperty();
+		private final BooleanProperty isNew = new SimpleBooleanProperty();
+		private final BooleanProperty isStarred = new SimpleBooleanProperty();
+		private final StringProperty lastReplyDate = new SimpleStringProperty();
+	}
+
 	private int storeId = -1;
 	private int identityId = -1;
 
-	private final StringProperty subject = new SimpleStringProperty();
-	private final StringProperty from = new SimpleStringProperty();
-	private final StringProperty fromShort = new SimpleStringProperty();
-	private final StringProperty date = new SimpleStringProperty();
-	private final StringProperty messageId = new SimpleStringProperty();
-	private final StringProperty parentMessageId = new SimpleStringProperty();
-	private final IntegerProperty localTrustLevel = new SimpleIntegerProperty(-1);
-	private final IntegerProperty peerTrustLevel = new SimpleIntegerProperty(-1);
-	private final StringProperty indexDate = new SimpleStringProperty();
-	private final IntegerProperty index = new SimpleIntegerProperty(-1);
-	private final StringProperty replyBoard = new SimpleStringProperty();
-	private final StringProperty boards = new SimpleStringProperty();
-	private final StringProperty body = new SimpleStringProperty();
-	private final BooleanProperty isNew = new SimpleBooleanProperty();
-	private final BooleanProperty isStarred = new SimpleBooleanProperty();
-	private final StringProperty lastReplyDate = new SimpleStringProperty();
+	private String subject;
+	private String from;
+	private long timestamp = NO_DATE;
+	private boolean hasTime;
+	private String messageId;
+	private String parentMessageId;
+	private int localTrustLevel = -1;
+	private int peerTrustLevel = -1;
+	private long indexDay = NO_DATE;
+	private int index = -1;
+	private String replyBoard;
+	private boolean isNew;
+	private boolean isStarred;
+	private long lastReplyTimestamp = NO_DATE;
 
 	private List<String> boardList;
+	private Properties properties;
+
+	private static String intern(String str) {
+		if (str == null) {
+			return null;
+		}
+
+		return str.intern();
+	}
+
+	private static String shortName(String from) {
+		if (from == null) {
+			return null;
+		}
+
+		int idx = from.lastIndexOf('@');
+		if (idx != -1) {
+			return from.substring(0, idx);
+		} else {
+			return from;
+		}
+	}
+
+	private String formatDate(long value) {
+		if (value == NO_DATE) {
+			return "";
+		}
+
+		final LocalDateTime dateTime =
+			LocalDateTime.ofEpochSecond(value, 0, ZoneOffset.UTC);
+		if (!hasTime) {
+			return dateTime.toLocalDate()
+				.format(DateTimeFormatter.ISO_LOCAL_DATE);
+		}
+
+		StringBuilder str = new StringBuilder();
+		str.append(dateTime.toLocalDate()
+				.format(DateTimeFormatter.ISO_LOCAL_DATE));
+		str.append(' ');
+		str.append(dateTime.toLocalTime()
+				.format(DateTimeFormatter.ISO_LOCAL_TIME));
+
+		return str.toString();
+	}
+
+	private String joinBoards() {
+		if (boardList == null) {
+			return "";
+		}
+
+		// XXX copied from MessageWindow
+		// TODO sort instead of random DB order
+		final String board = getReplyBoard();
+		StringBuilder str = new StringBuilder();
+		str.append(board);
+		for (String b : boardList) {
+			if (!b.equals(board)) {
+				str.append(", ");
+				str.append(b);
+			}
+		}
+
+		return str.toString();
+	}
+
+	private Properties getProperties() {
+		if (properties == null) {
+			Properties p = new Properties();
+			p.subject.set(subject);
+			p.from.set(from);
+			p.fromShort.set(shortName(from));
+			p.date.set(formatDate(timestamp));
+			p.messageId.set(messageId);
+			p.parentMessageId.set(parentMessageId);
+			p.localTrustLevel.set(localTrustLevel);
+			p.peerTrustLevel.set(peerTrustLevel);
+			p.indexDate.set(getIndexDate());
+			p.index.set(index);
+			p.replyBoard.set(replyBoard);
+			p.boards.set(joinBoards());
+			p.isNew.set(isNew);
+			p.isStarred.set(isStarred);
+			p.lastReplyDate.set(formatDate(lastReplyTimestamp));
+
+			properties = p;
+		}
+
+		return properties;
+	}
+
+	boolean hasProperties() {
+		return properties != null;
+	}
 
 	public void clear() {
 		storeId = -1;
 		identityId = -1;
 
-		subject.set("");
-		from.set("");
-		fromShort.set("");
-		date.set("");
-		messageId.set("");
-		parentMessageId.set("");
-		localTrustLevel.set(-1);
-		peerTrustLevel.set(-1);
-		indexDate.set("");
-		index.set(-1);
-		replyBoard.set("");
-		boards.set("");
-		body.set("");
-		isNew.set(false);
-		isStarred.set(false);
-		lastReplyDate.set("");
-
+		setSubject("");
+		setFrom("");
+		hasTime = false;
+		setTimestamp(NO_DATE);
+		setMessageId("");
+		setParentMessageId("");
+		setLocalTrustLevel(-1);
+		setPeerTrustLevel(-1);
+		setIndexDay(NO_DATE);
+		setIndex(-1);
+		setReplyBoard("");
 		boardList = null;
+		setIsNew(false);
+		setIsStarred(false);
+		setLastReplyTimestamp(NO_DATE);
+
+		if (properties != null) {
+			properties.boards.set("");
+		}
 	}
 
 	public void setAll(Message m) {
 		storeId = m.storeId;
 		identityId = m.identityId;
 
-		subject.set(m.subject.get());
-		from.set(m.from.get());
-		fromShort.set(m.fromShort.get());
-		date.set(m.date.get());
-		messageId.set(m.messageId.get());
-		parentMessageId.set(m.parentMessageId.get());
-		localTrustLevel.set(m.localTrustLevel.get());
-		peerTrustLevel.set(m.peerTrustLevel.get());
-		indexDate.set(m.indexDate.get());
-		index.set(m.index.get());
-		replyBoard.set(m.replyBoard.get());
-		boards.set(m.boards.get());
-		body.set(m.body.get());
-		isNew.set(m.isNew.get());
-		isStarred.set(m.isStarred.get());
-		lastReplyDate.set(m.lastReplyDate.get());
-
+		setSubject(m.getSubject());
+		setFrom(m.getFrom());
+		hasTime = m.hasTime;
+		setTimestamp(m.timestamp);
+		setMessageId(m.getMessageId());
+		setParentMessageId(m.getParentMessageId());
+		setLocalTrustLevel(m.getLocalTrustLevel());
+		setPeerTrustLevel(m.getPeerTrustLevel());
+		setIndexDay(m.indexDay);
+		setIndex(m.getIndex());
+		setReplyBoard(m.getReplyBoard());
 		boardList = m.boardList;
+		if (properties != null) {
+			properties.boards.set(joinBoards());
+		}
+		setIsNew(m.getIsNew());
+		setIsStarred(m.getIsStarred());
+		setLastReplyTimestamp(m.lastReplyTimestamp);
 	}
 
 	public int getStoreId() {
@@ -108,141 +230,253 @@ public class Message {
 	}
 
 	public final String getSubject() {
-		return subject.get();
+		if (properties != null) {
+			return properties.subject.get();
+		}
+
+		return subject;
 	}
 
 	public final void setSubject(String subject) {
-		this.subject.set(subject);
+		if (properties != null) {
+			properties.subject.set(subject);
+		} else {
+			this.subject = subject;
+		}
 	}
 
 	public final StringProperty subjectProperty() {
-		return subject;
+		return getProperties().subject;
 	}
 
 	public final String getFrom() {
-		return from.get();
+		if (properties != null) {
+			return properties.from.get();
+		}
+
+		return from;
 	}
 
 	public final void setFrom(String from) {
-		this.from.set(from);
-		if (from != null) {
-			int idx = from.lastIndexOf('@');
-			if (idx != -1) {
-				fromShort.set(from.substring(0, idx));
-			} else {
-				fromShort.set(from);
-			}
+		final String internedFrom = intern(from);
+		if (properties != null) {
+			properties.from.set(internedFrom);
+			properties.fromShort.set(shortName(internedFrom));
 		} else {
-			fromShort.set(null);
+			this.from = internedFrom;
 		}
 	}
 
 	public final StringProperty fromProperty() {
-		return from;
+		return getProperties().from;
 	}
 
 	public final String getFromShort() {
-		return fromShort.get();
+		if (properties != null) {
+			return properties.fromShort.get();
+		}
+
+		return shortName(from);
 	}
 
 	public final StringProperty fromShortProperty() {
-		return fromShort;
+		return getProperties().fromShort;
 	}
 
 	public final String getDate() {
-		return date.get();
+		if (properties != null) {
+			return properties.date.get();
+		}
+
+		return formatDate(timestamp);
 	}
 
-	public final void setDate(String date) {
-		this.date.set(date);
+	public final void setDate(LocalDateTime date) {
+		hasTime = true;
+		setTimestamp(date.toEpochSecond(ZoneOffset.UTC));
+	}
+
+	public final void setDate(LocalDate date) {
+		hasTime = false;
+		setTimestamp(date.atStartOfDay().toEpochSecond(ZoneOffset.UTC));
+	}
+
+	/**
+	 * @return date of the message in seconds since the epoch (UTC)
+	 */
+	public final long getTimestamp() {
+		return timestamp;
+	}
+
+	private void setTimestamp(long timestamp) {
+		this.timestamp = timestamp;
+		if (properties != null) {
+			properties.date.set(formatDate(timestamp));
+		}
 	}
 
 	public final StringProperty dateProperty() {
-		return date;
+		return getProperties().date;
 	}
 
 	public final String getMessageId() {
-		return messageId.get();
+		if (properties != null) {
+			return properties.messageId.get();
+		}
+
+		return messageId;
 	}
 
 	public final void setMessageId(String messageId) {
-		this.messageId.set(messageId);
+		if (properties != null) {
+			properties.messageId.set(messageId);
+		} else {
+			this.messageId = messageId;
+		}
 	}
 
 	public final StringProperty messageIdProperty() {
-		return messageId;
+		return getProperties().messageId;
 	}
 
 	public final String getParentMessageId() {
-		return parentMessageId.get();
+		if (properties != null) {
+			return properties.parentMessageId.get();
+		}
+
+		return parentMessageId;
 	}
 
 	public final void setParentMessageId(String parentMessageId) {
-		this.parentMessageId.set(parentMessageId);
+		if (properties != null) {
+			properties.parentMessageId.set(parentMessageId);
+		} else {
+			this.parentMessageId = parentMessageId;
+		}
 	}
 
 	public final StringProperty parentMessageIdProperty() {
-		return parentMessageId;
+		return getProperties().parentMessageId;
 	}
 
 	public final int getLocalTrustLevel() {
-		return localTrustLevel.get();
+		if (properties != null) {
+			return properties.localTrustLevel.get();
+		}
+
+		return localTrustLevel;
 	}
 
 	public final void setLocalTrustLevel(int trustLevel) {
-		this.localTrustLevel.set(trustLevel);
+		if (properties != null) {
+			properties.localTrustLevel.set(trustLevel);
+		} else {
+			this.localTrustLevel = trustLevel;
+		}
 	}
 
 	public final IntegerProperty localTrustLevelProperty() {
-		return localTrustLevel;
+		return getProperties().localTrustLevel;
 	}
 
 	public final int getPeerTrustLevel() {
-		return peerTrustLevel.get();
+		if (properties != null) {
+			return properties.peerTrustLevel.get();
+		}
+
+		return peerTrustLevel;
 	}
 
 	public final void setPeerTrustLevel(int trustLevel) {
-		this.peerTrustLevel.set(trustLevel);
+		if (properties != null) {
+			properties.peerTrustLevel.set(trustLevel);
+		} else {
+			this.peerTrustLevel = trustLevel;
+		}
 	}
 
 	public final IntegerProperty peerTrustLevelProperty() {
-		return peerTrustLevel;
+		return getProperties().peerTrustLevel;
 	}
 
 	public final String getIndexDate() {
-		return indexDate.get();
+		if (indexDay == NO_DATE) {
+			return "";
+		}
+
+		return LocalDate.ofEpochDay(indexDay)
+			.format(DateTimeFormatter.ISO_LOCAL_DATE);
+	}
+
+	public final LocalDate getIndexLocalDate() {
+		if (indexDay == NO_DATE) {
+			return null;
+		}
+
+		return LocalDate.ofEpochDay(indexDay);
 	}
 
-	public final void setIndexDate(String indexDate) {
-		this.indexDate.set(indexDate);
+	/**
+	 * @return insert date in days since the epoch
+	 */
+	public final long getIndexDay() {
+		return indexDay;
+	}
+
+	public final void setIndexDate(LocalDate indexDate) {
+		setIndexDay(indexDate.toEpochDay());
+	}
+
+	private void setIndexDay(long indexDay) {
+		this.indexDay = indexDay;
+		if (properties != null) {
+			properties.indexDate.set(getIndexDate());
+		}
 	}
 
 	public final StringProperty indexDateProperty() {
-		return indexDate;
+		return getProperties().indexDate;
 	}
 
 	public final int getIndex() {
-		return index.get();
+		if (properties != null) {
+			return properties.index.get();
+		}
+
+		return index;
 	}
 
 	public final void setIndex(int index) {
-		this.index.set(index);
+		if (properties != null) {
+			properties.index.set(index);
+		} else {
+			this.index = index;
+		}
 	}
 
 	public final IntegerProperty indexProperty() {
-		return index;
+		return getProperties().index;
 	}
 
 	public final String getReplyBoard() {
-		return replyBoard.get();
+		if (properties != null) {
+			return properties.replyBoard.get();
+		}
+
+		return replyBoard;
 	}
 
 	public final void setReplyBoard(String replyBoard) {
-		this.replyBoard.set(replyBoard);
+		final String internedBoard = intern(replyBoard);
+		if (properties != null) {
+			properties.replyBoard.set(internedBoard);
+		} else {
+			this.replyBoard = internedBoard;
+		}
 	}
 
 	public final StringProperty replyBoardProperty() {
-		return replyBoard;
+		return getProperties().replyBoard;
 	}
 
 	public List<String> getBoardList() {
@@ -250,11 +484,24 @@ public class Message {
 	}
 
 	public final void setBoardList(List<String> boardList) {
-		this.boardList = boardList;
+		if (boardList == null) {
+			this.boardList = null;
+			return;
+		}
+
+		List<String> internedBoards = new ArrayList<>(boardList.size());
+		for (String board : boardList) {
+			internedBoards.add(intern(board));
+		}
+		this.boardList = internedBoards;
 	}
 
 	public final String getBoards() {
-		return boards.get();
+		if (properties != null) {
+			return properties.boards.get();
+		}
+
+		return joinBoards();
 	}
 
 	public final void setBoards() {
@@ -263,69 +510,79 @@ public class Message {
 			return;
 		}
 
-		// XXX copied from MessageWindow
-		// TODO sort instead of random DB order
-		StringBuilder str = new StringBuilder();
-		str.append(getReplyBoard());
-		for (String board : boardList) {
-			if (!board.equals(getReplyBoard())) {
-				str.append(", ");
-				str.append(board);
-			}
+		if (properties != null) {
+			properties.boards.set(joinBoards());
 		}
-
-		boards.set(str.toString());
 	}
 
 	public final StringProperty boardsProperty() {
-		return boards;
-	}
-
-	public final String getBody() {
-		return body.get();
-	}
-
-	public final void setBody(String body) {
-		this.body.set(body);
-	}
-
-	public final StringProperty bodyProperty() {
-		return body;
+		return getProperties().boards;
 	}
 
 	public final boolean getIsNew() {
-		return isNew.get();
+		if (properties != null) {
+			return properties.isNew.get();
+		}
+
+		return isNew;
 	}
 
 	public final void setIsNew(boolean isNew) {
-		this.isNew.set(isNew);
+		if (properties != null) {
+			properties.isNew.set(isNew);
+		} else {
+			this.isNew = isNew;
+		}
 	}
 
 	public final BooleanProperty isNewProperty() {
-		return isNew;
+		return getProperties().isNew;
 	}
 
 	public final boolean getIsStarred() {
-		return isStarred.get();
+		if (properties != null) {
+			return properties.isStarred.get();
+		}
+
+		return isStarred;
 	}
 
 	public final void setIsStarred(boolean isStarred) {
-		this.isStarred.set(isStarred);
+		if (properties != null) {
+			properties.isStarred.set(isStarred);
+		} else {
+			this.isStarred = isStarred;
+		}
 	}
 
 	public final BooleanProperty isStarredProperty() {
-		return isStarred;
+		return getProperties().isStarred;
 	}
 
 	public final String getLastReplyDate() {
-		return lastReplyDate.get();
+		if (properties != null) {
+			return properties.lastReplyDate.get();
+		}
+
+		return formatDate(lastReplyTimestamp);
+	}
+
+	/**
+	 * @return date of the most recent message in the thread below this
+	 * message in seconds since the epoch (UTC)
+	 */
+	public final long getLastReplyTimestamp() {
+		return lastReplyTimestamp;
 	}
 
-	public final void setLastReplyDate(String lastReplyDate) {
-		this.lastReplyDate.set(lastReplyDate);
+	public final void setLastReplyTimestamp(long lastReplyTimestamp) {
+		this.lastReplyTimestamp = lastReplyTimestamp;
+		if (properties != null) {
+			properties.lastReplyDate.set(formatDate(lastReplyTimestamp));
+		}
 	}
 
 	public final StringProperty lastReplyDateProperty() {
-		return lastReplyDate;
+		return getProperties().lastReplyDate;
 	}
 }
@@ -0,0 +1,197 @@
+package jfms.ui;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import javafx.collections.FXCollections;
+import javafx.scene.Node;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Control;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.KeyCombination;
+
+/**
+ * Shows a message body as a list of lines.
+ * The ListView is virtualized and only lays out visible lines, which
+ * keeps very large bodies (logs, dumps) responsive.
+ * Lines are wrapped; selected lines can be copied to the clipboard.
+ * Emoticons and links are not shown; lines containing the highlight
+ * (e.g., a search term) are marked as a whole.
+ */
+class MessageBodyListView implements MessageBodyView {
+	private final ListView<String> listView = new ListView<>();
+	private String body;
+	private String signature;
+	private MessageLines lines;
+	private boolean muteQuotes = false;
+	private boolean showSignature = false;
+	private String highlight;
+	private BitSet highlightedLines = new BitSet();
+
+	private class LineCell extends ListCell<String> {
+		public LineCell() {
+			setWrapText(true);
+			// wrap at the width of the list instead of growing
+			prefWidthProperty().bind(listView.widthProperty().subtract(20));
+			setMaxWidth(Control.USE_PREF_SIZE);
+		}
+
+		@Override
+		protected void updateItem(String item, boolean empty) {
+			super.updateItem(item, empty);
+
+			if (empty || item == null) {
+				setText(null);
+				setStyle(null);
+				return;
+			}
+
+			setText(item);
+			updateStyle();
+		}
+
+		@Override
+		public void updateSelected(boolean selected) {
+			super.updateSelected(selected);
+			updateStyle();
+		}
+
+		private void updateStyle() {
+			if (isEmpty() || lines == null || getIndex() >= lines.size()) {
+				return;
+			}
+
+			final StringBuilder style = new StringBuilder();
+			switch (lines.getType(getIndex())) {
+			case MessageLines.QUOTE:
+			case MessageLines.MUTED:
+				style.append("-fx-text-fill: green;");
+				break;
+			case MessageLines.SIGNATURE:
+				style.append("-fx-text-fill: gray;");
+				break;
+			default:
+				break;
+			}
+
+			// keep the selection visible
+			if (highlightedLines.get(getIndex()) && !isSelected()) {
+				style.append("-fx-background-color: yellow;");
+			}
+
+			setStyle(style.length() > 0 ? style.toString() : null);
+		}
+	}
+
+	public MessageBodyListView() {
+		listView.setCellFactory(l -> new LineCell());
+		listView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+
+		final MenuItem copyMenuItem = new MenuItem("Copy");
+		copyMenuItem.setOnAction(e -> copySelectedLines());
+		final MenuItem selectAllMenuItem = new MenuItem("Select All");
+		selectAllMenuItem.setOnAction(e ->
+				listView.getSelectionModel().selectAll());
+		listView.setContextMenu(new ContextMenu(copyMenuItem,
+					selectAllMenuItem));
+
+		final KeyCombination copyKey = KeyCombination.keyCombination(
+				"Shortcut+C");
+		listView.setOnKeyPressed(e -> {
+			if (copyKey.match(e)) {
+				copySelectedLines();
+				e.consume();
+			}
+		});
+	}
+
+	@Override
+	public Node getNode() {
+		return listView;
+	}
+
+	@Override
+	public void setText(String body, String signature) {
+		this.body = body;
+		this.signature = signature;
+
+		renderMessage();
+	}
+
+	@Override
+	public void setMuteQuotes(boolean muteQuotes) {
+		this.muteQuotes = muteQuotes;
+		renderMessage();
+	}
+
+	@Override
+	public void setShowEmoticons(boolean showEmoticons) {
+	}
+
+	@Override
+	public void setShowSignature(boolean showSignature) {
+		this.showSignature = showSignature;
+		renderMessage();
+	}
+
+	@Override
+	public void setDetectLinks(boolean detectLinks) {
+	}
+
+	@Override
+	public void setHighlight(String text) {
+		highlight = text;
+		if (lines != null) {
+			highlightedLines = lines.findHighlights(highlight);
+			listView.refresh();
+		}
+	}
+
+	@Override
+	public void setUseMonospaceFont(boolean useMonospaceFont) {
+		if (useMonospaceFont) {
+			listView.setStyle("-fx-font-family: Monospace");
+		} else {
+			listView.setStyle(null);
+		}
+	}
+
+	private void copySelectedLines() {
+		if (lines == null) {
+			return;
+		}
+
+		final List<Integer> indices = new ArrayList<>(
+				listView.getSelectionModel().getSelectedIndices());
+		if (indices.isEmpty()) {
+			return;
+		}
+		Collections.sort(indices);
+
+		final ClipboardContent content = new ClipboardContent();
+		content.putString(lines.getText(indices));
+		Clipboard.getSystemClipboard().setContent(content);
+	}
+
+	private void renderMessage() {
+		if (body == null) {
+			lines = null;
+			highlightedLines = new BitSet();
+			listView.setItems(FXCollections.emptyObservableList());
+			return;
+		}
+
+		lines = new MessageLines(body, signature, muteQuotes, showSignature);
+		highlightedLines = lines.findHighlights(highlight);
+		listView.setItems(FXCollections.observableList(lines));
+
+		// show the first match, e.g., in search results
+		listView.scrollTo(Math.max(0, highlightedLines.nextSetBit(0)));
+	}
+}
@@ -0,0 +1,121 @@
+package jfms.ui;
+
+import javafx.scene.Node;
+import javafx.scene.layout.StackPane;
+
+import jfms.config.Config;
+
+/**
+ * Shows message bodies in the configured view, unless the body exceeds
+ * the large message size. Large bodies are shown in a
+ * {@link MessageBodyListView} that is created on first use.
+ */
+class MessageBodySelector implements MessageBodyView {
+	private final StackPane pane = new StackPane();
+	private final MessageBodyView defaultView;
+	private MessageBodyListView largeView;
+	private MessageBodyView activeView;
+
+	private boolean muteQuotes = false;
+	private boolean useMonospaceFont = false;
+	private boolean showSignature = false;
+	private String highlight;
+
+	public MessageBodySelector(MessageBodyView defaultView) {
+		this.defaultView = defaultView;
+		this.activeView = defaultView;
+		pane.getChildren().add(defaultView.getNode());
+	}
+
+	private static boolean isLarge(String body) {
+		final int maxSize = Config.getInstance().getLargeMessageSize();
+		return maxSize > 0 && body != null &&
+			body.length() > maxSize * 1024L;
+	}
+
+	@Override
+	public Node getNode() {
+		return pane;
+	}
+
+	@Override
+	public void setText(String body, String signature) {
+		selectView(body).setText(body, signature);
+	}
+
+	@Override
+	public void setText(int messageId, String body, String signature) {
+		selectView(body).setText(messageId, body, signature);
+	}
+
+	@Override
+	public void setMuteQuotes(boolean muteQuotes) {
+		this.muteQuotes = muteQuotes;
+		defaultView.setMuteQuotes(muteQuotes);
+		if (largeView != null) {
+			largeView.setMuteQuotes(muteQuotes);
+		}
+	}
+
+	@Override
+	public void setUseMonospaceFont(boolean useMonospaceFont) {
+		this.useMonospaceFont = useMonospaceFont;
+		defaultView.setUseMonospaceFont(useMonospaceFont);
+		if (largeView != null) {
+			largeView.setUseMonospaceFont(useMonospaceFont);
+		}
+	}
+
+	@Override
+	public void setShowEmoticons(boolean showEmoticons) {
+		defaultView.setShowEmoticons(showEmoticons);
+	}
+
+	@Override
+	public void setShowSignature(boolean showSignature) {
+		this.showSignature = showSignature;
+		defaultView.setShowSignature(showSignature);
+		if (largeView != null) {
+			largeView.setShowSignature(showSignature);
+		}
+	}
+
+	@Override
+	public void setDetectLinks(boolean detectLinks) {
+		defaultView.setDetectLinks(detectLinks);
+	}
+
+	@Override
+	public void setHighlight(String text) {
+		this.highlight = text;
+		defaultView.setHighlight(text);
+		if (largeView != null) {
+			largeView.setHighlight(text);
+		}
+	}
+
+	private MessageBodyView selectView(String body) {
+		final MessageBodyView view;
+		if (isLarge(body)) {
+			if (largeView == null) {
+				largeView = new MessageBodyListView();
+				largeView.setMuteQuotes(muteQuotes);
+				largeView.setUseMonospaceFont(useMonospaceFont);
+				largeView.setShowSignature(showSignature);
+				largeView.setHighlight(highlight);
+			}
+			view = largeView;
+		} else {
+			view = defaultView;
+		}
+
+		if (view != activeView) {
+			// release the previous content
+			activeView.setText("", null);
+			pane.getChildren().setAll(view.getNode());
+			activeView = view;
+		}
+
+		return view;
+	}
+}
@@ -5,6 +5,15 @@ import javafx.scene.Node;
 interface MessageBodyView {
 	Node getNode();
 	void setText(String value, String signature);
+
+	/**
+	 * Shows the body of a stored message.
+	 * Views may use the ID to cache the rendered message.
+	 */
+	default void setText(int messageId, String value, String signature) {
+		setText(value, signature);
+	}
+
 	void setMuteQuotes(boolean muteQuotes);
 	void setUseMonospaceFont(boolean useMonospaceFont);
 	void setShowEmoticons(boolean showEmoticons);
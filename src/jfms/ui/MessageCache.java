@@ -0,0 +1,268 @@
+package jfms.ui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jfms.config.Config;
+import jfms.fms.Attachment;
+import jfms.fms.FmsManager;
+import jfms.store.Store;
+
+/**
+ * LRU cache for message bodies and attachment lists.
+ * The size of the cache is limited by the (estimated) number of bytes of
+ * the cached entries. Messages that are likely to be read next can be
+ * loaded in a background thread.
+ * Bodies above the large message size are never cached; they are read
+ * again when displayed and can be released as soon as the view is done.
+ * Such messages are remembered and skipped by prefetching.
+ */
+class MessageCache {
+	private static final Logger LOG = Logger.getLogger(MessageCache.class.getName());
+	private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+	private static final int ENTRY_OVERHEAD = 64;
+	private static final int ATTACHMENT_OVERHEAD = 48;
+
+	private static class Entry {
+		private String body;
+		private List<Attachment> attachments;
+		private long size = ENTRY_OVERHEAD;
+	}
+
+	private final Map<Integer, Entry> entries =
+		new LinkedHashMap<>(256, 0.75f, true);
+	private final long maxBytes;
+	private long currentBytes;
+	// IDs of messages with bodies that are too large to be cached
+	private final Set<Integer> uncacheable = new HashSet<>();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private final ExecutorService executor =
+		Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "MessagePrefetcher");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+	private Future<?> prefetchFuture;
+
+	public MessageCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	public MessageCache(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+
+	public String getBody(int messageId) {
+		synchronized (this) {
+			final Entry entry = entries.get(messageId);
+			if (entry != null && entry.body != null) {
+				hits.incrementAndGet();
+				return entry.body;
+			}
+		}
+
+		misses.incrementAndGet();
+		return loadBody(messageId);
+	}
+
+	public List<Attachment> getAttachments(int messageId) {
+		synchronized (this) {
+			final Entry entry = entries.get(messageId);
+			if (entry != null && entry.attachments != null) {
+				hits.incrementAndGet();
+				return entry.attachments;
+			}
+		}
+
+		misses.incrementAndGet();
+		return loadAttachments(messageId);
+	}
+
+	/**
+	 * Loads the specified messages in a background thread.
+	 * A pending prefetch request is replaced.
+	 * @param messageIds store IDs of the messages, most important first
+	 * @param withAttachments whether attachment lists should be loaded
+	 */
+	public synchronized void prefetch(Collection<Integer> messageIds,
+			boolean withAttachments) {
+
+		if (prefetchFuture != null) {
+			prefetchFuture.cancel(false);
+		}
+
+		final List<Integer> ids = new ArrayList<>(messageIds);
+		prefetchFuture = executor.submit(() -> {
+			for (int id : ids) {
+				try {
+					// large bodies are only loaded when displayed
+					if (!containsBody(id) && !isUncacheable(id)) {
+						loadBody(id);
+					}
+					if (withAttachments && !containsAttachments(id)) {
+						loadAttachments(id);
+					}
+				} catch (Exception e) {
+					LOG.log(Level.FINE, "failed to prefetch message", e);
+				}
+			}
+		});
+	}
+
+	public synchronized void remove(int messageId) {
+		final Entry entry = entries.remove(messageId);
+		if (entry != null) {
+			currentBytes -= entry.size;
+		}
+		uncacheable.remove(messageId);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		uncacheable.clear();
+		currentBytes = 0;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public synchronized long getSize() {
+		return currentBytes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		str.append(getHitCount());
+		str.append(" hits, ");
+		str.append(getMissCount());
+		str.append(" misses, ");
+		str.append(getSize());
+		str.append(" bytes");
+
+		return str.toString();
+	}
+
+	private synchronized boolean containsBody(int messageId) {
+		final Entry entry = entries.get(messageId);
+		return entry != null && entry.body != null;
+	}
+
+	private synchronized boolean isUncacheable(int messageId) {
+		return uncacheable.contains(messageId);
+	}
+
+	private synchronized boolean containsAttachments(int messageId) {
+		final Entry entry = entries.get(messageId);
+		return entry != null && entry.attachments != null;
+	}
+
+	private String loadBody(int messageId) {
+		final Store store = FmsManager.getInstance().getStore();
+		final String body = QueryStats.getInstance().time("getMessageBody",
+				() -> store.getMessageBody(messageId));
+		if (body == null) {
+			return null;
+		}
+
+		if (!isCacheable(body)) {
+			LOG.log(Level.FINEST, "not caching large body of message {0}",
+					messageId);
+			synchronized (this) {
+				uncacheable.add(messageId);
+			}
+			return body;
+		}
+
+		synchronized (this) {
+			final Entry entry = getOrCreateEntry(messageId);
+			if (entry.body == null) {
+				entry.body = body;
+				addSize(entry, 2L * body.length());
+			}
+		}
+
+		return body;
+	}
+
+	private boolean isCacheable(String body) {
+		final long size = 2L * body.length();
+		final int largeMessageSize = Config.getInstance().getLargeMessageSize();
+		if (largeMessageSize > 0 && body.length() > largeMessageSize * 1024L) {
+			return false;
+		}
+
+		return size <= maxBytes / 4;
+	}
+
+	private List<Attachment> loadAttachments(int messageId) {
+		final Store store = FmsManager.getInstance().getStore();
+		final List<Attachment> attachments = QueryStats.getInstance().time(
+				"getAttachments", () -> store.getAttachments(messageId));
+		if (attachments == null) {
+			return null;
+		}
+
+		long size = 0;
+		for (Attachment a : attachments) {
+			size += ATTACHMENT_OVERHEAD + 2L * a.getKey().length();
+		}
+
+		synchronized (this) {
+			final Entry entry = getOrCreateEntry(messageId);
+			if (entry.attachments == null) {
+				entry.attachments = attachments;
+				addSize(entry, size);
+			}
+		}
+
+		return attachments;
+	}
+
+	private Entry getOrCreateEntry(int messageId) {
+		Entry entry = entries.get(messageId);
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(messageId, entry);
+			currentBytes += entry.size;
+		}
+
+		return entry;
+	}
+
+	private void addSize(Entry entry, long size) {
+		entry.size += size;
+		currentBytes += size;
+
+		// evict least recently used entries (never the newest one)
+		final Iterator<Entry> iter = entries.values().iterator();
+		while (currentBytes > maxBytes && entries.size() > 1) {
+			final Entry eldest = iter.next();
+			if (eldest == entry) {
+				break;
+			}
+			currentBytes -= eldest.size;
+			iter.remove();
+		}
+	}
+}
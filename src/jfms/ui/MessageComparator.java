@@ -0,0 +1,133 @@
+package jfms.ui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.collections.FXCollections;
+import javafx.scene.control.TreeItem;
+import javafx.scene.control.TreeTableColumn;
+
+/**
+ * Compares message tree items according to the sort order of the header
+ * table.
+ * Messages are compared by their fields directly, which avoids creating
+ * cell values (and therefore properties) for every message while sorting.
+ */
+class MessageComparator implements Comparator<TreeItem<Message>> {
+	private static final Logger LOG = Logger.getLogger(MessageComparator.class.getName());
+	private static final Comparator<String> STRING_COMPARATOR =
+		Comparator.nullsFirst(Comparator.naturalOrder());
+
+	private final List<Comparator<Message>> comparators = new ArrayList<>();
+
+	public MessageComparator(List<TreeTableColumn<Message,?>> sortOrder,
+			boolean sortByLastReply) {
+
+		for (TreeTableColumn<Message,?> c : sortOrder) {
+			Comparator<Message> comparator =
+				getColumnComparator(c.getText(), sortByLastReply);
+			if (comparator == null) {
+				LOG.log(Level.WARNING, "no comparator for column {0}",
+						c.getText());
+				continue;
+			}
+
+			if (c.getSortType() == TreeTableColumn.SortType.DESCENDING) {
+				comparator = comparator.reversed();
+			}
+			comparators.add(comparator);
+		}
+	}
+
+	public boolean isEmpty() {
+		return comparators.isEmpty();
+	}
+
+	/**
+	 * Sorts the children of all nodes in the tree.
+	 * Replies of collapsed threads that are not attached yet are sorted
+	 * when they are attached.
+	 */
+	public void sortTree(TreeItem<Message> root) {
+		if (root == null || isEmpty()) {
+			return;
+		}
+
+		final Deque<TreeItem<Message>> stack = new ArrayDeque<>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			final TreeItem<Message> node = stack.pop();
+			if (node instanceof LazyThreadItem) {
+				final LazyThreadItem thread = (LazyThreadItem)node;
+				thread.setComparator(this);
+				if (!thread.isLoaded()) {
+					continue;
+				}
+			}
+			if (node.isLeaf()) {
+				continue;
+			}
+
+			FXCollections.sort(node.getChildren(), this);
+			for (TreeItem<Message> child : node.getChildren()) {
+				stack.push(child);
+			}
+		}
+	}
+
+	@Override
+	public int compare(TreeItem<Message> item1, TreeItem<Message> item2) {
+		final Message m1 = item1.getValue();
+		final Message m2 = item2.getValue();
+
+		for (Comparator<Message> c : comparators) {
+			int result = c.compare(m1, m2);
+			if (result != 0) {
+				return result;
+			}
+		}
+
+		return 0;
+	}
+
+	private static Comparator<Message> getColumnComparator(String name,
+			boolean sortByLastReply) {
+
+		switch (name) {
+		case "Starred":
+			return Comparator.comparing(Message::getIsStarred);
+		case "Subject":
+			return Comparator.comparing(Message::getSubject,
+					STRING_COMPARATOR);
+		case "From":
+			return Comparator.comparing(Message::getFromShort,
+					STRING_COMPARATOR);
+		case "Identity":
+			return Comparator.comparing(Message::getFrom, STRING_COMPARATOR);
+		case "Date":
+			if (sortByLastReply) {
+				return Comparator.comparingLong(
+						Message::getLastReplyTimestamp);
+			} else {
+				return Comparator.comparingLong(Message::getTimestamp);
+			}
+		case "Insert Date":
+			return Comparator.comparingLong(Message::getIndexDay);
+		case "Index":
+			return Comparator.comparingInt(Message::getIndex);
+		case "Reply Board":
+			return Comparator.comparing(Message::getReplyBoard,
+					STRING_COMPARATOR);
+		case "Local Trust":
+			return Comparator.comparingInt(Message::getLocalTrustLevel);
+		case "Peer Trust":
+			return Comparator.comparingInt(Message::getPeerTrustLevel);
+		default:
+			return null;
+		}
+	}
+}
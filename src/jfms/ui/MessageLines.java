@@ -0,0 +1,228 @@
+package jfms.ui;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Lines of a message body (and signature) for display in a list.
+ * Only the line offsets are stored; line strings are created on access,
+ * so a virtualized list only materializes the visible lines.
+ * Lines longer than {@link #MAX_LINE_LENGTH} are split into several
+ * entries.
+ */
+class MessageLines extends AbstractList<String> {
+	public static final int TEXT = 0;
+	public static final int QUOTE = 1;
+	public static final int MUTED = 2;
+	public static final int SIGNATURE = 3;
+
+	public static final int MAX_LINE_LENGTH = 1000;
+	private static final int CONTINUATION = 0x10;
+
+	private static final String MUTED_TEXT = "> [quoted text muted]";
+
+	private final String body;
+	private final String signatureText;
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private byte[] types = new byte[16];
+	private int size = 0;
+
+	public MessageLines(String body, String signature, boolean muteQuotes,
+			boolean showSignature) {
+		this.body = body;
+		if (showSignature && signature != null) {
+			signatureText = "\n-- \n" + signature;
+		} else {
+			signatureText = null;
+		}
+
+		boolean inQuote = false;
+		int start = 0;
+		while (start < body.length()) {
+			final int end = findLineEnd(body, start);
+			final boolean quote = start < end && body.charAt(start) == '>';
+
+			if (quote && muteQuotes) {
+				if (!inQuote) {
+					add(-1, -1, MUTED);
+				}
+			} else {
+				add(start, end, quote ? QUOTE : TEXT);
+			}
+
+			inQuote = quote;
+			start = skipLineTerminator(body, end);
+		}
+
+		if (signatureText != null) {
+			start = 0;
+			while (start < signatureText.length()) {
+				final int end = findLineEnd(signatureText, start);
+				add(start, end, SIGNATURE);
+				start = skipLineTerminator(signatureText, end);
+			}
+		}
+	}
+
+	private static int findLineEnd(String str, int start) {
+		int end = start;
+		while (end < str.length()) {
+			final char c = str.charAt(end);
+			if (c == '\n' || c == '\r') {
+				break;
+			}
+			end++;
+		}
+
+		return end;
+	}
+
+	private static int skipLineTerminator(String str, int pos) {
+		if (pos >= str.length()) {
+			return pos;
+		}
+
+		if (str.charAt(pos) == '\r' && pos + 1 < str.length() &&
+				str.charAt(pos + 1) == '\n') {
+			return pos + 2;
+		}
+
+		return pos + 1;
+	}
+
+	private void add(int start, int end, int type) {
+		if (type == MUTED) {
+			addEntry(start, end, type);
+			return;
+		}
+
+		final String str = type == SIGNATURE ? signatureText : body;
+		int pos = start;
+		do {
+			int chunkEnd = Math.min(end, pos + MAX_LINE_LENGTH);
+			if (chunkEnd < end &&
+					Character.isHighSurrogate(str.charAt(chunkEnd - 1))) {
+				chunkEnd--;
+			}
+
+			addEntry(pos, chunkEnd, pos == start ? type : type | CONTINUATION);
+			pos = chunkEnd;
+		} while (pos < end);
+	}
+
+	private void addEntry(int start, int end, int type) {
+		if (size == starts.length) {
+			final int capacity = size * 2;
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			types = Arrays.copyOf(types, capacity);
+		}
+
+		starts[size] = start;
+		ends[size] = end;
+		types[size] = (byte)type;
+		size++;
+	}
+
+	@Override
+	public String get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index);
+		}
+
+		switch (getType(index)) {
+		case MUTED:
+			return MUTED_TEXT;
+		case SIGNATURE:
+			return signatureText.substring(starts[index], ends[index]);
+		default:
+			return body.substring(starts[index], ends[index]);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return TEXT, QUOTE, MUTED or SIGNATURE
+	 */
+	public int getType(int index) {
+		return types[index] & ~CONTINUATION;
+	}
+
+	/**
+	 * @return true if the entry is the continuation of a split line
+	 */
+	public boolean isContinuation(int index) {
+		return (types[index] & CONTINUATION) != 0;
+	}
+
+	/**
+	 * Finds the entries that contain (part of) a highlight term.
+	 * Matching is case-insensitive like in the HTML view; the signature
+	 * and muted quotes are not searched.
+	 * @return indices of the matching entries
+	 */
+	public BitSet findHighlights(String highlight) {
+		final BitSet matches = new BitSet(size);
+		if (highlight == null || highlight.isEmpty()) {
+			return matches;
+		}
+
+		final int length = highlight.length();
+		int first = 0;
+		while (first < size) {
+			// a match may span the entries of a split line
+			int last = first;
+			while (last + 1 < size && isContinuation(last + 1)) {
+				last++;
+			}
+
+			final int type = getType(first);
+			if (type == TEXT || type == QUOTE) {
+				final int lineEnd = ends[last];
+				int entry = first;
+				for (int pos=starts[first]; pos + length <= lineEnd; pos++) {
+					if (!body.regionMatches(true, pos, highlight, 0, length)) {
+						continue;
+					}
+
+					while (ends[entry] <= pos) {
+						entry++;
+					}
+					for (int i=entry; i<=last && starts[i] < pos + length; i++) {
+						matches.set(i);
+					}
+				}
+			}
+
+			first = last + 1;
+		}
+
+		return matches;
+	}
+
+	/**
+	 * Joins entries, e.g., for copying them to the clipboard.
+	 * Parts of split lines are joined without a line break.
+	 * @param indices indices of the entries in ascending order
+	 */
+	public String getText(Collection<Integer> indices) {
+		final StringBuilder str = new StringBuilder();
+		int previous = -1;
+		for (int i : indices) {
+			if (previous != -1 && !(isContinuation(i) && previous == i - 1)) {
+				str.append('\n');
+			}
+			str.append(get(i));
+			previous = i;
+		}
+
+		return str.toString();
+	}
+}
@@ -0,0 +1,314 @@
+package jfms.ui;
+
+/**
+ * Renders a message body as HTML document.
+ * Escaping, quotes, emoticons, links and highlights are handled in a
+ * single pass over the body; emoticons and keys are found by a
+ * {@link TokenScanner}. The output buffer is reused between calls.
+ * <p>
+ * Quotes are emitted both in full and muted, and the signature is always
+ * included. Which variant is visible is controlled by the stylesheet
+ * returned by {@link #getViewStyleSheet}, so these options can be toggled
+ * without rendering the document again.
+ */
+class MessageRenderer {
+	public static final int FLAG_MONOSPACE_FONT = 0x04;
+	public static final int FLAG_SHOW_EMOTICONS = 0x08;
+	public static final int FLAG_DETECT_LINKS = 0x10;
+
+	// limit maximum number of emoticons/messages to avoid huge HTML
+	private static final int MAX_EMOTICONS = 100;
+
+	private final StringBuilder out = new StringBuilder();
+	private final TokenScanner scanner = new TokenScanner();
+	private final boolean useCustomStyleSheet;
+	private boolean useMonospaceFont = false;
+	private boolean showEmoticons = false;
+	private boolean detectLinks = false;
+	private String highlight;
+
+	private int emoticonCount;
+
+	public static void encodeHTML(StringBuilder out, String str) {
+		encodeHTML(out, str, 0, str.length());
+	}
+
+	public static void encodeHTML(StringBuilder out, String str, int start,
+			int end) {
+
+		for (int i = start; i < end; i++) {
+			encodeHTML(out, str.charAt(i));
+		}
+	}
+
+	private static void encodeHTML(StringBuilder out, char c) {
+		if (c > 0x7f || c=='"' || c=='&' || c=='<' || c=='>') {
+			out.append("&#");
+			out.append((int)c);
+			out.append(';');
+		} else {
+			out.append(c);
+		}
+	}
+
+	/**
+	 * Finds the end of the line starting at the specified position.
+	 * Lines are terminated by LF, CR or CRLF.
+	 */
+	private static int findLineEnd(String str, int start) {
+		int end = start;
+		while (end < str.length()) {
+			final char c = str.charAt(end);
+			if (c == '\n' || c == '\r') {
+				break;
+			}
+			end++;
+		}
+
+		return end;
+	}
+
+	private static int skipLineTerminator(String str, int pos) {
+		if (pos >= str.length()) {
+			return pos;
+		}
+
+		if (str.charAt(pos) == '\r' && pos + 1 < str.length() &&
+				str.charAt(pos + 1) == '\n') {
+			return pos + 2;
+		}
+
+		return pos + 1;
+	}
+
+	/**
+	 * Creates the stylesheet that selects the visible variants of
+	 * the rendered document.
+	 */
+	public static String getViewStyleSheet(boolean muteQuotes,
+			boolean showSignature) {
+		StringBuilder str = new StringBuilder();
+		if (muteQuotes) {
+			str.append(".quoted { display: none !important; }\n");
+		} else {
+			str.append(".muted { display: none !important; }\n");
+		}
+		if (!showSignature) {
+			str.append(".signature { display: none !important; }\n");
+		}
+
+		return str.toString();
+	}
+
+	public MessageRenderer(boolean useCustomStyleSheet) {
+		this.useCustomStyleSheet = useCustomStyleSheet;
+	}
+
+	public void setUseMonospaceFont(boolean useMonospaceFont) {
+		this.useMonospaceFont = useMonospaceFont;
+	}
+
+	public void setShowEmoticons(boolean showEmoticons) {
+		this.showEmoticons = showEmoticons;
+	}
+
+	public void setDetectLinks(boolean detectLinks) {
+		this.detectLinks = detectLinks;
+	}
+
+	public void setHighlight(String highlight) {
+		this.highlight = highlight;
+	}
+
+	public String getHighlight() {
+		return highlight;
+	}
+
+	/**
+	 * @return bitmask of the FLAG_* options that affect the output
+	 */
+	public int getFlags() {
+		int flags = 0;
+		if (useMonospaceFont) {
+			flags |= FLAG_MONOSPACE_FONT;
+		}
+		if (showEmoticons) {
+			flags |= FLAG_SHOW_EMOTICONS;
+		}
+		if (detectLinks) {
+			flags |= FLAG_DETECT_LINKS;
+		}
+
+		return flags;
+	}
+
+	public String render(String body, String signature) {
+		out.setLength(0);
+
+		out.append("<html>\n");
+		out.append("<head>\n");
+		if (!useCustomStyleSheet) {
+			out.append("<style type=\"text/css\">\n");
+			out.append("body { margin-bottom: 25px; margin-right: 25px;}\n");
+			out.append("pre { white-space: pre-wrap; }\n");
+			out.append(".quote { color: green; }\n");
+			out.append(".signature { color: gray; }\n");
+			out.append(".highlight { background-color: yellow; }\n");
+			out.append("</style>\n");
+		}
+		out.append("</head>\n");
+		out.append("<body>\n");
+
+		if (useMonospaceFont) {
+			out.append("<pre>");
+		}
+
+		renderBody(body);
+
+		if (signature != null) {
+			out.append("<span class=\"signature\">");
+			addNewline();
+			addNewline();
+			out.append("--&nbsp;");
+
+			int start = 0;
+			while (start < signature.length()) {
+				final int end = findLineEnd(signature, start);
+				addNewline();
+				encodeHTML(out, signature, start, end);
+				start = skipLineTerminator(signature, end);
+			}
+
+			out.append("</span>");
+		}
+
+		if (useMonospaceFont) {
+			out.append("</pre>");
+		}
+
+		out.append("\n</body>\n");
+		out.append("</html>");
+
+		return out.toString();
+	}
+
+	private void renderBody(String body) {
+		emoticonCount = 0;
+
+		boolean firstLine = true;
+		boolean inQuote = false;
+		int start = 0;
+		while (start < body.length()) {
+			final int end = findLineEnd(body, start);
+
+			if (start < end && body.charAt(start) == '>') {
+				if (!inQuote) {
+					out.append("<span class=\"quote\"><span class=\"muted\">");
+					if (!firstLine) {
+						addNewline();
+					}
+					out.append("&gt; [quoted text muted]</span>");
+					out.append("<span class=\"quoted\">");
+				}
+				inQuote = true;
+			} else {
+				if (inQuote) {
+					out.append("</span></span>");
+				}
+				inQuote = false;
+			}
+
+			if (!firstLine) {
+				addNewline();
+			}
+			appendText(body, start, end);
+
+			firstLine = false;
+			start = skipLineTerminator(body, end);
+		}
+
+		if (inQuote) {
+			out.append("</span></span>");
+		}
+	}
+
+	private void appendText(String text, int start, int end) {
+		int pos = start;
+		while (pos < end) {
+			final boolean emoticonAllowed = showEmoticons &&
+				emoticonCount < MAX_EMOTICONS &&
+				isEmoticonAllowed(text, start, pos);
+
+			switch (scanner.scan(text, pos, end, emoticonAllowed, detectLinks)) {
+			case TokenScanner.EMOTICON:
+				final String imgTag =
+					Emoticons.getInstance().getImgTag(scanner.getIndex());
+				if (imgTag != null) {
+					out.append(imgTag);
+					emoticonCount++;
+					pos = scanner.getEnd();
+					continue;
+				}
+				break;
+			case TokenScanner.KEY:
+				appendLink(text, pos, scanner.getEnd());
+				pos = scanner.getEnd();
+				continue;
+			default:
+				break;
+			}
+
+			pos = appendHighlightedChar(text, pos, end);
+		}
+	}
+
+	/**
+	 * Emoticons are only allowed at the start of a line or after
+	 * whitespace.
+	 */
+	private static boolean isEmoticonAllowed(String text, int lineStart,
+			int pos) {
+		return pos == lineStart || Character.isWhitespace(text.charAt(pos-1));
+	}
+
+	private void appendLink(String text, int start, int end) {
+		out.append("<a href=\"");
+		encodeHTML(out, text, start, end);
+		out.append("\" title=\"Right-click to copy link\">");
+
+		int pos = start;
+		while (pos < end) {
+			pos = appendHighlightedChar(text, pos, end);
+		}
+
+		out.append("</a>");
+	}
+
+	/**
+	 * Appends the highlight term if it starts at the specified position,
+	 * otherwise a single character.
+	 * @return position after the appended text
+	 */
+	private int appendHighlightedChar(String text, int pos, int end) {
+		if (highlight != null && !highlight.isEmpty()) {
+			final int highlightEnd = pos + highlight.length();
+			if (highlightEnd <= end && text.regionMatches(true, pos,
+						highlight, 0, highlight.length())) {
+				out.append("<span class=\"highlight\">");
+				encodeHTML(out, text, pos, highlightEnd);
+				out.append("</span>");
+				return highlightEnd;
+			}
+		}
+
+		encodeHTML(out, text.charAt(pos));
+		return pos + 1;
+	}
+
+	private void addNewline() {
+		out.append('\n');
+		if (!useMonospaceFont) {
+			out.append("<br/>");
+		}
+	}
+}
@@ -356,8 +356,10 @@ public class MessageWindow {
 
 
 		Store store = FmsManager.getInstance().getStore();
-		int index = store.saveLocalMessage(localIdentityId, messageXml, date,
-				draftRef, insertStatus);
+		final int identityId = localIdentityId;
+		int index = QueryStats.getInstance().time("saveLocalMessage",
+				() -> store.saveLocalMessage(identityId, messageXml, date,
+					draftRef, insertStatus));
 		if (index == -1) {
 			LOG.log(Level.WARNING, "Failed to store message");
 			showSendMessageFailedDialog(Constants.SEE_LOGS_TEXT);
@@ -422,7 +424,8 @@ public class MessageWindow {
 	private void setFromList() {
 		final Store store = FmsManager.getInstance().getStore();
 		final int defaultId = Config.getInstance().getDefaultId();
-		localIds = store.retrieveLocalIdentities();
+		localIds = QueryStats.getInstance().time("retrieveLocalIdentities",
+				store::retrieveLocalIdentities);
 
 		ObservableList<String> fromList = FXCollections.observableArrayList();
 		for (Map.Entry<Integer, LocalIdentity> e : localIds.entrySet()) {
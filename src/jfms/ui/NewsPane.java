@@ -3,16 +3,22 @@ package jfms.ui;
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.application.Platform;
@@ -65,7 +71,6 @@ import jfms.fms.LocalIdentity;
 import jfms.fms.MessageListener;
 import jfms.fms.MessageReference;
 import jfms.fms.Sanitizer;
-import jfms.fms.TrustManager;
 import jfms.store.InsertStatus;
 import jfms.store.MessageSearchCriteria;
 import jfms.store.Store;
@@ -83,11 +88,14 @@ public class NewsPane {
 	private static final String STARRED_TEXT = "Starred Messages";
 	private static final String NO_FOLDER_TEXT = "No folder selected";
 	private static final String NO_MESSAGES_TEXT = "No messages found";
+	private static final String LOADING_TEXT = "Loading messages...";
 	private static final String BOLD_STYLE = "-fx-font-weight: bold;";
+	private static final int PREFETCH_UNREAD_COUNT = 2;
+	// reload folder instead of inserting larger batches of new messages
+	private static final int BULK_RELOAD_COUNT = 100;
 
 	private final Stage primaryStage;
 	private Mode mode = Mode.NONE;
-	private Mode previousMode = Mode.NONE;
 	private final SplitPane splitPane = new SplitPane();
 	private final SplitPane msgSplitPane = new SplitPane();
 	private final Button replyButton = new Button();
@@ -106,11 +114,24 @@ public class NewsPane {
 
 	private TreeTableView<Message> headerTable;
 	private TreeItem<Message> headerRootItem;
+	private ThreadIndex threadIndex = new ThreadIndex();
+	private AuthorView authorView = AuthorView.EMPTY;
+	private final UnreadIndex unreadIndex = new UnreadIndex();
+	private final MessageCache messageCache = new MessageCache();
+	private boolean selectFirstUnread;
+	private final FolderLoader folderLoader = new FolderLoader();
+	private final List<jfms.fms.Message> pendingMessages = new ArrayList<>();
+	private Function<MessageTree, List<Message>> folderQuery;
+	private boolean folderThreaded;
 	private final Label placeHolderLabel = new Label(NO_FOLDER_TEXT);
 
 	private String currentFolder;
 	private final TreeView<Board> folderTree;
 	private TreeItem<Board> fmsFolder;
+	private final UnreadCounts unreadCounts = new UnreadCounts(
+			boardName -> fmsManager.getBoardManager().getBoardId(boardName));
+	private final FolderLoader counterLoader = new FolderLoader();
+	private final Set<String> subscribingBoards = new HashSet<>();
 	private TreeItem<Board> draftFolder;
 	private TreeItem<Board> outFolder;
 	private TreeItem<Board> virtualFolders;
@@ -137,6 +158,13 @@ public class NewsPane {
 		BOARD,
 	}
 
+	private static class MessageTree {
+		private final TreeItem<Message> root = new TreeItem<>();
+		private final ThreadIndex index = new ThreadIndex();
+		private AuthorView authors = AuthorView.EMPTY;
+		private int messageCount;
+	}
+
 	public NewsPane(Stage stage) {
 		final Config config =  Config.getInstance();
 
@@ -427,6 +455,7 @@ public class NewsPane {
 				case STARRED:
 				case SEARCH_RESULTS:
 					handleMessageSelected(newValue.getValue());
+					prefetchMessages(newValue);
 					replyDisabled = false;
 					break;
 				case DRAFT:
@@ -490,9 +519,12 @@ public class NewsPane {
 	}
 
 	private class NewMessageListener implements MessageListener {
+		private final UpdateBatcher<jfms.fms.Message> batcher =
+			new UpdateBatcher<>(NewsPane.this::insertNewMessages);
+
 		@Override
 		public void newMessage(jfms.fms.Message message) {
-			Platform.runLater(() -> insertNewMessage(message));
+			batcher.add(message);
 		}
 
 		@Override
@@ -575,6 +607,8 @@ public class NewsPane {
 	}
 
 	public void saveConfig(WindowInfo winInfo) {
+		LOG.log(Level.FINE, "message cache: {0}", messageCache);
+
 		Config config = Config.getInstance();
 		config.setStringValue(Config.SHOW_THREADS,
 				Boolean.toString(threadedView));
@@ -626,6 +660,16 @@ public class NewsPane {
 		updateMessagePane();
 	}
 
+	/**
+	 * Discards the cached author names and trust values.
+	 * Called after the trust of an identity was edited; new messages will
+	 * then use the current values. Values changed by the periodic trust
+	 * calculation are picked up once the view expires.
+	 */
+	public void invalidateAuthorView() {
+		authorView = AuthorView.EMPTY;
+	}
+
 	public boolean getThreadSort() {
 		return threadSort;
 	}
@@ -645,8 +689,6 @@ public class NewsPane {
 			}
 		}
 
-		// force update
-		previousMode = Mode.NONE;
 		updateMessagePane();
 	}
 
@@ -669,8 +711,6 @@ public class NewsPane {
 	public void setCollapseReadThreads(boolean collapseReadThreads) {
 		this.collapseReadThreads = collapseReadThreads;
 
-		// force update
-		previousMode = Mode.NONE;
 		updateMessagePane();
 	}
 
@@ -769,6 +809,10 @@ public class NewsPane {
 			level--;
 		}
 
+		if (topLevelItem instanceof LazyThreadItem) {
+			((LazyThreadItem)topLevelItem).load();
+		}
+
 		List<Message> messages = new ArrayList<>();
 		List<TreeItem<Message>> itemsToProcess = new ArrayList<>();
 		itemsToProcess.add(topLevelItem);
@@ -787,6 +831,11 @@ public class NewsPane {
 	}
 
 	public void redrawRow(Message message) {
+		if (!message.hasProperties()) {
+			// never shown, nothing to redraw
+			return;
+		}
+
 		// workaround to force re-rendering of single row
 		Message originalMessage = new Message();
 		originalMessage.setAll(message);
@@ -795,13 +844,7 @@ public class NewsPane {
 	}
 
 	public boolean isSubscribed(String boardName) {
-		for (TreeItem<Board> b : fmsFolder.getChildren()) {
-			if (b.getValue().getName().equals(boardName)) {
-				return true;
-			}
-		}
-
-		return false;
+		return unreadCounts.contains(boardName);
 	}
 
 	public boolean isSubscribed() {
@@ -821,25 +864,45 @@ public class NewsPane {
 			return;
 		}
 
-		if (isSubscribed(boardName)) {
+		if (isSubscribed(board)) {
 			LOG.log(Level.FINE, "Board {0} already subscribed", board);
 			return;
 		}
 
-		jfms.fms.BoardManager boardManager = fmsManager.getBoardManager();
-		if (boardManager.getBoardId(board) == null) {
-			Store store = FmsManager.getInstance().getStore();
-			int boardId = store.saveBoard(board, true);
-			if (boardId != -1) {
-				boardManager.addBoard(boardId, board);
-			}
+		// the store is updated in the background, the board is added to
+		// the folder tree afterwards unless it was unsubscribed meanwhile
+		if (!subscribingBoards.add(board)) {
+			return;
 		}
-		boardManager.subscribe(board);
-		int unread = boardManager.getUnreadMessageCount(board);
 
+		final jfms.fms.BoardManager boardManager = fmsManager.getBoardManager();
+		StoreWriter.getInstance().submit(() -> {
+			if (boardManager.getBoardId(board) == null) {
+				Store store = FmsManager.getInstance().getStore();
+				int boardId = QueryStats.getInstance().time("saveBoard",
+						() -> store.saveBoard(board, true));
+				if (boardId != -1) {
+					boardManager.addBoard(boardId, board);
+				}
+			}
+			boardManager.subscribe(board);
+
+			return QueryStats.getInstance().time("getUnreadMessageCount",
+					() -> boardManager.getUnreadMessageCount(board));
+		}, unread -> {
+			// no-op if the board already existed
+			BoardCounters.getInstance().addBoard(board);
+			if (subscribingBoards.remove(board)) {
+				addBoardItem(board, unread);
+			}
+		});
+	}
+
+	private void addBoardItem(String board, int unread) {
 		TreeItem<Board> newBoard = new TreeItem<>(
 				new Board(board, unread),
 				new ImageView(Icons.getInstance().getBoardIcon()));
+		unreadCounts.addBoard(newBoard);
 
 		ObservableList<TreeItem<Board>> boardList = fmsFolder.getChildren();
 		int boardListSize = boardList.size();
@@ -859,16 +922,19 @@ public class NewsPane {
 	}
 
 	public void unsubscribeBoard(String boardName) {
-		Iterator<TreeItem<Board>> iter = fmsFolder.getChildren().iterator();
-		while (iter.hasNext()) {
-			TreeItem<Board> board = iter.next();
-			if (board.getValue().getName().equals(boardName)) {
-				iter.remove();
-				break;
-			}
+		subscribingBoards.remove(boardName);
+		final TreeItem<Board> board = unreadCounts.getBoardItem(boardName);
+		if (board != null) {
+			fmsFolder.getChildren().remove(board);
+			unreadCounts.removeBoard(boardName);
 		}
 
-		fmsManager.getBoardManager().unsubscribe(boardName);
+		// must not overtake a pending subscribe
+		final jfms.fms.BoardManager boardManager = fmsManager.getBoardManager();
+		StoreWriter.getInstance().submit(() -> {
+			boardManager.unsubscribe(boardName);
+			return null;
+		}, v -> {});
 	}
 
 	public MenuItem createMessageNewMenuItem() {
@@ -966,34 +1032,63 @@ public class NewsPane {
 	}
 
 	public void gotoNextUnreadMessage() {
-		int index = headerTable.getSelectionModel().getSelectedIndex();
-		TreeItem<Message> item = null;
-
-		do {
-			item = headerTable.getTreeItem(++index);
-			if (item == null) {
-				break;
-			}
-		} while (!item.getValue().getIsNew());
+		final TreeItem<Message> item = unreadIndex.next(
+				headerTable.getSelectionModel().getSelectedItem());
 
 		if (item != null) {
-			gotoMessage(index);
+			gotoMessage(item);
+		} else {
+			gotoNextUnreadBoard();
 		}
 	}
 
 	public void gotoPreviousUnreadMessage() {
-		int index = headerTable.getSelectionModel().getSelectedIndex();
-		TreeItem<Message> item = null;
+		final TreeItem<Message> item = unreadIndex.previous(
+				headerTable.getSelectionModel().getSelectedItem());
 
-		do {
-			item = headerTable.getTreeItem(--index);
-			if (item == null) {
-				break;
+		if (item != null) {
+			gotoMessage(item);
+		}
+	}
+
+	private void gotoMessage(TreeItem<Message> item) {
+		// unread message may be hidden in a collapsed thread
+		TreeItem<Message> parent = item.getParent();
+		while (parent != null) {
+			parent.setExpanded(true);
+			parent = parent.getParent();
+		}
+
+		gotoMessage(headerTable.getRow(item));
+	}
+
+	/**
+	 * Opens the next board (in folder order) with unread messages and
+	 * selects the first unread message once the board is loaded.
+	 */
+	private void gotoNextUnreadBoard() {
+		final List<TreeItem<Board>> boards = fmsFolder.getChildren();
+		final int boardCount = boards.size();
+
+		int start = 0;
+		if (mode == Mode.BOARD) {
+			final TreeItem<Board> currentBoard =
+				unreadCounts.getBoardItem(currentFolder);
+			start = boards.indexOf(currentBoard) + 1;
+		}
+
+		for (int i=0; i<boardCount; i++) {
+			final TreeItem<Board> board = boards.get((start + i) % boardCount);
+			final String boardName = board.getValue().getName();
+			if (mode == Mode.BOARD && boardName.equals(currentFolder)) {
+				continue;
 			}
-		} while (!item.getValue().getIsNew());
 
-		if (item != null) {
-			gotoMessage(index);
+			if (unreadCounts.getCount(boardName) > 0) {
+				folderTree.getSelectionModel().select(board);
+				selectFirstUnread = true;
+				return;
+			}
 		}
 	}
 
@@ -1020,14 +1115,22 @@ public class NewsPane {
 
 		int draftCount = 0;
 		int unsentMessageCount = 0;
-		Map<Integer, LocalIdentity> identities = fmsManager.getStore().retrieveLocalIdentities();
+		Map<Integer, LocalIdentity> identities = QueryStats.getInstance().time(
+				"retrieveLocalIdentities",
+				fmsManager.getStore()::retrieveLocalIdentities);
+		final Store store = fmsManager.getStore();
+		final QueryStats stats = QueryStats.getInstance();
 		for (Map.Entry<Integer, LocalIdentity> e : identities.entrySet()) {
 			int localIdentityId = e.getKey();
 
-			List<MessageReference> msgRefs = fmsManager.getStore().getLocalMessageList(localIdentityId, InsertStatus.DRAFT, null, -1);
+			List<MessageReference> msgRefs = stats.time("getLocalMessageList",
+					() -> store.getLocalMessageList(localIdentityId,
+						InsertStatus.DRAFT, null, -1));
 			draftCount += msgRefs.size();
 
-			msgRefs = fmsManager.getStore().getLocalMessageList(localIdentityId, InsertStatus.NOT_INSERTED, null, -1);
+			msgRefs = stats.time("getLocalMessageList",
+					() -> store.getLocalMessageList(localIdentityId,
+						InsertStatus.NOT_INSERTED, null, -1));
 			unsentMessageCount += msgRefs.size();
 		}
 
@@ -1064,11 +1167,13 @@ public class NewsPane {
 		jfms.fms.BoardManager boardManager = fmsManager.getBoardManager();
 		final Image folderIcon = Icons.getInstance().getBoardIcon();
 		for (String boardName : boardManager.getSubscribedBoardNames()) {
-			final int unread = boardManager.getUnreadMessageCount(boardName);
+			final int unread = stats.time("getUnreadMessageCount",
+					() -> boardManager.getUnreadMessageCount(boardName));
 			TreeItem<Board> publicBoard = new TreeItem<>(
 					new Board(boardName, unread),
 					new ImageView(folderIcon));
 			fmsFolder.getChildren().add(publicBoard);
+			unreadCounts.addBoard(publicBoard);
 		}
 
 		fmsFolder.setExpanded(true);
@@ -1089,9 +1194,9 @@ public class NewsPane {
 
 	private Node createMessagePane() {
 		if (Config.getInstance().getWebViewEnabled()) {
-			messageBody = new MessageBodyWebView();
+			messageBody = new MessageBodySelector(new MessageBodyWebView());
 		} else {
-			messageBody = new MessageBodyTextView();
+			messageBody = new MessageBodySelector(new MessageBodyTextView());
 		}
 		messageBody.setText("No message to display", null);
 
@@ -1201,12 +1306,20 @@ public class NewsPane {
 		treeTableView.getSelectionModel().selectedItemProperty()
 			.addListener(new MessageRowSelectionChangeListener());
 
+		treeTableView.rootProperty().addListener((observable, oldValue,
+					newValue) -> unreadIndex.setRoot(newValue));
+
 		headerRootItem = new TreeItem<>();
 		treeTableView.setRoot(headerRootItem);
 		treeTableView.setShowRoot(false);
 		treeTableView.setPlaceholder(placeHolderLabel);
 		treeTableView.setTableMenuButtonVisible(true);
 		treeTableView.setMaxHeight(Double.MAX_VALUE);
+		// compare fields instead of creating cell values for every message
+		treeTableView.setSortPolicy(t -> {
+			createMessageComparator().sortTree(t.getRoot());
+			return true;
+		});
 		treeTableView.setOnMouseClicked(e -> {
 			if (e.getClickCount() > 1 && mode == Mode.DRAFT) {
 				TreeItem<Message> selectedItem = headerTable.getSelectionModel()
@@ -1221,6 +1334,20 @@ public class NewsPane {
 		return treeTableView;
 	}
 
+	private boolean isLocalFolder() {
+		return mode == Mode.OUTBOX || mode == Mode.DRAFT || mode == Mode.SENT;
+	}
+
+	private MessageComparator createMessageComparator() {
+		return new MessageComparator(headerTable.getSortOrder(),
+				threadSort && !isLocalFolder());
+	}
+
+	private static boolean isLazyThread(TreeItem<Message> item) {
+		return item instanceof LazyThreadItem &&
+			!((LazyThreadItem)item).isLoaded();
+	}
+
 	private ColumnSelector getLocalFolderColumns(
 			Message.Status messageStatus) {
 
@@ -1353,8 +1480,7 @@ public class NewsPane {
 				boolean isStarred = !msg.getIsStarred();
 				msg.setIsStarred(isStarred);
 
-				final Store store = FmsManager.getInstance().getStore();
-				store.setMessageFlags(msg.getStoreId(),
+				StoreWriter.getInstance().setMessageFlags(msg.getStoreId(),
 					isStarred ? Constants.MSG_FLAG_STARRED : 0);
 			});
 		}
@@ -1473,8 +1599,8 @@ public class NewsPane {
 	private void handleReply() {
 		Store store = FmsManager.getInstance().getStore();
 		Message message = getSelectedMessage();
-		jfms.fms.Message fmsMessage = store.getMessage(
-				message.getStoreId());
+		jfms.fms.Message fmsMessage = QueryStats.getInstance().time(
+				"getMessage", () -> store.getMessage(message.getStoreId()));
 		if (fmsMessage == null) {
 			return;
 		}
@@ -1491,9 +1617,7 @@ public class NewsPane {
 			return;
 		}
 
-		final LocalDate date = LocalDate.parse(
-				currentMessage.getIndexDate(),
-				DateTimeFormatter.ISO_LOCAL_DATE);
+		final LocalDate date = currentMessage.getIndexLocalDate();
 		String uri = jfms.fms.Identity.getMessageKey(ssk,
 				date, currentMessage.getIndex());
 
@@ -1530,6 +1654,7 @@ public class NewsPane {
 		Optional<ButtonType> result = dialog.showAndWait();
 		if (result.isPresent() && result.get() == ButtonType.OK) {
 			trustPane.applySettings();
+			invalidateAuthorView();
 		}
 	}
 
@@ -1587,133 +1712,294 @@ public class NewsPane {
 		}
 
 		final Store store = FmsManager.getInstance().getStore();
-		store.removeMessage(messageId);
+		QueryStats.getInstance().run("removeMessage",
+				() -> store.removeMessage(messageId));
+		messageCache.remove(messageId);
 
 		TreeItem<Message> item = headerTable.getSelectionModel()
 			.getSelectedItem();
+		final Message message = item.getValue();
+		final Map<String, Integer> deltas = new HashMap<>();
+		if (message.getBoardList() != null) {
+			for (String boardName : message.getBoardList()) {
+				deltas.put(boardName, -1);
+			}
+		}
+		BoardCounters.getInstance().add(deltas);
+		if (message.getIsNew()) {
+			unreadCounts.add(deltas);
+		}
+
+		final boolean isRootNode = item.getParent() == headerRootItem;
 		List<TreeItem<Message>> siblings = item.getParent().getChildren();
+		if (item instanceof LazyThreadItem) {
+			// replies are moved up
+			((LazyThreadItem)item).load();
+		}
 
 		int index = siblings.indexOf(item);
 		siblings.remove(index);
+		threadIndex.removeNode(item);
 		for (TreeItem<Message> child : item.getChildren()) {
 			siblings.add(index, child);
+			if (isRootNode) {
+				// parent may be downloaded again
+				threadIndex.addOrphan(child);
+			}
 		}
 	}
 
 	private void updateMessagePane() {
-		boolean modeChanged = mode != previousMode;
 		messageBody.setHighlight(null);
+		selectFirstUnread = false;
+
+		final boolean threaded = threadedView;
+		final Store store = fmsManager.getStore();
+		final QueryStats stats = QueryStats.getInstance();
+		Function<MessageTree, List<Message>> query = null;
 
 		switch (mode) {
 		case NONE:
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_FOLDER_TEXT);
-			}
 			break;
 		case OUTBOX:
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_MESSAGES_TEXT);
-			}
-			createLocalMessageTree(InsertStatus.NOT_INSERTED);
+			query = t -> getLocalMessages(InsertStatus.NOT_INSERTED);
 			break;
 		case DRAFT:
-			createLocalMessageTree(InsertStatus.DRAFT);
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_MESSAGES_TEXT);
-			}
+			query = t -> getLocalMessages(InsertStatus.DRAFT);
 			break;
 		case SENT:
-			createLocalMessageTree(InsertStatus.INSERTED);
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_MESSAGES_TEXT);
-			}
+			query = t -> getLocalMessages(InsertStatus.INSERTED);
 			break;
 		case BOARD:
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_MESSAGES_TEXT);
-			}
-			createFmsMessageTree(currentFolder, threadedView);
+			final String boardName = currentFolder;
+			query = t -> createMessages(stats.time("getMessagesForBoard",
+						() -> store.getMessagesForBoard(boardName)), t);
 			break;
 		case RECENTLY_RECEIVED:
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_MESSAGES_TEXT);
-			}
-			createRecentFmsMessageTree(threadedView);
+			final boolean subscribedOnly =
+				Config.getInstance().getShowSubscribedOnly();
+			query = t -> createMessages(stats.time("getRecentMessages",
+						() -> store.getRecentMessages(subscribedOnly)), t);
 			break;
 		case STARRED:
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_MESSAGES_TEXT);
-			}
-			createStarredFmsMessageTree(threadedView);
+			query = t -> createMessages(stats.time("getStarredMessages",
+						store::getStarredMessages), t);
 			break;
 		case SEARCH_RESULTS:
-			if (modeChanged) {
-				placeHolderLabel.setText(NO_MESSAGES_TEXT);
-			}
-			createSearchResultsMessageTree(currentFolder, threadedView);
+			final MessageSearchCriteria msc = searchFolders.get(currentFolder);
+			query = t -> createMessages(stats.time("findMessages",
+						() -> store.findMessages(msc)), t);
+			messageBody.setHighlight(msc.getBody());
 			break;
 		}
 
+		folderQuery = query;
+		folderThreaded = threaded && !isLocalFolder();
+		if (query != null) {
+			loadMessageTree(query, folderThreaded, false);
+		} else {
+			folderLoader.cancel();
+			placeHolderLabel.setText(NO_FOLDER_TEXT);
+		}
+
 		// we always apply settings to keep folders sorted
 		columnSelectors.get(mode).apply(headerTable);
-		previousMode = mode;
 
 		headerTable.scrollTo(0);
 		currentMessage.clear();
 		avatar.setIdentityId(-1);
 	}
 
+	/**
+	 * Loads the messages of a folder in the background.
+	 * @param reload whether the current messages stay visible until the
+	 * folder is loaded
+	 */
+	private void loadMessageTree(Function<MessageTree, List<Message>> query,
+			boolean threaded, boolean reload) {
+
+		final boolean collapse = collapseReadThreads;
+
+		// show empty folder until the new messages are available
+		if (!reload) {
+			headerRootItem = new TreeItem<>();
+			headerTable.setRoot(headerRootItem);
+			threadIndex = new ThreadIndex();
+			placeHolderLabel.setText(LOADING_TEXT);
+		}
+		pendingMessages.clear();
+
+		folderLoader.load(() -> {
+			// folder queries (e.g., starred) must see queued updates
+			StoreWriter.getInstance().flush();
+
+			final MessageTree tree = new MessageTree();
+			final List<Message> messages = query.apply(tree);
+			if (FolderLoader.isCancelled()) {
+				return null;
+			}
+
+			tree.messageCount = messages.size();
+			tree.root.getChildren().setAll(createMessageTreeNodes(messages,
+						threaded, collapse, tree.index));
+
+			return tree;
+		}, tree -> showMessageTree(tree, threaded, reload));
+	}
+
+	private void showMessageTree(MessageTree tree, boolean threaded,
+			boolean reload) {
+		placeHolderLabel.setText(NO_MESSAGES_TEXT);
+		if (tree == null) {
+			pendingMessages.clear();
+			return;
+		}
+
+		LOG.log(Level.FINEST, "found {0} messages in {1} threads", new Object[]{
+				tree.messageCount, tree.root.getChildren().size()});
+
+		// folder was reloaded: keep the current selection (without
+		// reloading the body) and expanded threads
+		String reselectId = null;
+		Map<String, Boolean> expansionState = null;
+		if (reload) {
+			final TreeItem<Message> selectedItem = headerTable
+				.getSelectionModel().getSelectedItem();
+			if (selectedItem != null) {
+				reselectId = selectedItem.getValue().getMessageId();
+			}
+			expansionState = getExpansionState();
+		}
+
+		ignoreMessageRowSelection = reselectId != null;
+		headerTable.setRoot(tree.root);
+		headerRootItem = tree.root;
+		threadIndex = tree.index;
+		authorView = tree.authors.withIdentities(
+				getIdentityIds(pendingMessages));
+
+		// messages received while loading may be missing
+		for (jfms.fms.Message m : pendingMessages) {
+			if (!threadIndex.contains(m.getMessageUuid())) {
+				insertMessageIntoTree(createMessage(m, authorView), threaded,
+						headerRootItem.getChildren());
+			}
+		}
+		pendingMessages.clear();
+
+		if (expansionState != null) {
+			restoreExpansionState(expansionState);
+		}
+		headerTable.sort();
+
+		final TreeItem<Message> reselectItem = reselectId != null ?
+			threadIndex.getNode(reselectId) : null;
+		if (reselectItem != null) {
+			gotoMessage(reselectItem);
+		} else {
+			headerTable.scrollTo(0);
+		}
+		ignoreMessageRowSelection = false;
+
+		if (selectFirstUnread) {
+			selectFirstUnread = false;
+			final TreeItem<Message> item = unreadIndex.next(null);
+			if (item != null) {
+				gotoMessage(item);
+			}
+		}
+	}
+
+	/**
+	 * @return expanded state of all threads and replies with replies,
+	 * keyed by message ID
+	 */
+	private Map<String, Boolean> getExpansionState() {
+		final Map<String, Boolean> state = new HashMap<>();
+		final Deque<TreeItem<Message>> stack = new ArrayDeque<>();
+		stack.push(headerRootItem);
+		while (!stack.isEmpty()) {
+			for (TreeItem<Message> item : stack.pop().getChildren()) {
+				if (item.isLeaf()) {
+					continue;
+				}
+
+				final String messageId = item.getValue().getMessageId();
+				if (messageId != null) {
+					state.put(messageId, item.isExpanded());
+				}
+
+				// replies of unloaded threads have their initial state
+				if (!isLazyThread(item)) {
+					stack.push(item);
+				}
+			}
+		}
+
+		return state;
+	}
+
+	private void restoreExpansionState(Map<String, Boolean> state) {
+		for (Map.Entry<String, Boolean> e : state.entrySet()) {
+			final String messageId = e.getKey();
+			if (e.getValue()) {
+				final TreeItem<Message> item = threadIndex.getNode(messageId);
+				if (item != null) {
+					item.setExpanded(true);
+				}
+			} else if (threadIndex.isAttached(messageId)) {
+				threadIndex.getNode(messageId).setExpanded(false);
+			}
+		}
+	}
+
 	private Message createLocalMessage(MessageReference msgRef) {
 		Message message = new Message();
-		message.setDate(msgRef.getDate().format(DateTimeFormatter.ISO_LOCAL_DATE));
-		message.setIndexDate(msgRef.getDate().format(DateTimeFormatter.ISO_LOCAL_DATE));
+		message.setDate(msgRef.getDate());
+		message.setIndexDate(msgRef.getDate());
 		message.setIndex(msgRef.getIndex());
 
 		return message;
 	}
 
-	private Message createMessage(jfms.fms.Message fmsMessage) {
+	private Message createMessage(jfms.fms.Message fmsMessage,
+			AuthorView authors) {
 		String name = "not found";
 		final int identityId = fmsMessage.getIdentityId();
-		jfms.fms.Identity id = fmsManager
-			.getIdentityManager()
-			.getIdentity(identityId);
-		if (id != null) {
-			name = id.getFullName();
+		final AuthorView.Author author = authors.get(identityId);
+		if (author != null) {
+			name = author.getName();
 		}
 
 		Message message = new Message();
 		message.setStoreId(fmsMessage.getMessageId());
-		message.setIndexDate(fmsMessage.getInsertDate()
-				.format(DateTimeFormatter.ISO_LOCAL_DATE));
+		message.setIndexDate(fmsMessage.getInsertDate());
 		message.setIndex(fmsMessage.getInsertIndex());
 		message.setIdentityId(identityId);
 		message.setSubject(fmsMessage.getSubject());
 		message.setFrom(name);
 
-		StringBuilder str = new StringBuilder();
-		str.append(fmsMessage.getDate()
-				.format(DateTimeFormatter.ISO_LOCAL_DATE));
-		str.append(" ");
-		str.append(fmsMessage.getTime()
-				.format(DateTimeFormatter.ISO_LOCAL_TIME));
-		message.setDate(str.toString());
-		message.setLastReplyDate(str.toString());
+		message.setDate(LocalDateTime.of(fmsMessage.getDate(),
+				fmsMessage.getTime()));
+		message.setLastReplyTimestamp(message.getTimestamp());
 
 		message.setMessageId(fmsMessage.getMessageUuid());
 		message.setReplyBoard(fmsMessage.getReplyBoard());
 		message.setBoardList(fmsMessage.getBoards());
 		message.setBoards();
-		message.setIsNew(!fmsMessage.getRead());
-		message.setIsStarred((fmsMessage.getFlags() & Constants.MSG_FLAG_STARRED) != 0);
+		final StoreWriter storeWriter = StoreWriter.getInstance();
+		final int messageId = fmsMessage.getMessageId();
+		message.setIsNew(!storeWriter.isMessageRead(messageId,
+					fmsMessage.getRead()));
+		message.setIsStarred((storeWriter.getMessageFlags(messageId,
+					fmsMessage.getFlags()) & Constants.MSG_FLAG_STARRED) != 0);
 		message.setParentMessageId(fmsMessage.getParentId());
-		if (id != null) {
-			final TrustManager trustManager = fmsManager.getTrustManager();
-			int localTrust = trustManager.getLocalMessageTrust(identityId);
+		if (author != null) {
+			int localTrust = author.getLocalMessageTrust();
 			if (localTrust != -1) {
 				message.setLocalTrustLevel(localTrust);
 			}
-			int peerTrust = trustManager.getPeerMessageTrust(identityId);
+			int peerTrust = author.getPeerMessageTrust();
 			if (peerTrust != -1) {
 				message.setPeerTrustLevel(peerTrust);
 			}
@@ -1722,40 +2008,113 @@ public class NewsPane {
 		return message;
 	}
 
-	private void insertNewMessage(jfms.fms.Message message) {
-		for (String boardName: message.getBoards()) {
-			if (boardName.equals(currentFolder)) {
-				TreeItem<Message> selectedItem = headerTable.getSelectionModel()
-					.getSelectedItem();
-				ignoreMessageRowSelection = true;
-				insertMessageIntoTree(createMessage(message),
-						threadedView, headerRootItem.getChildren());
+	private void insertNewMessages(List<jfms.fms.Message> messages) {
+		final List<jfms.fms.Message> folderMessages = new ArrayList<>();
+		final Map<String, Integer> unreadDeltas = new HashMap<>();
+
+		for (jfms.fms.Message message : messages) {
+			for (String boardName: message.getBoards()) {
+				if (boardName.equals(currentFolder)) {
+					folderMessages.add(message);
+				}
 
-				// force resorting (is there a simpler way?)
-				ObservableList<TreeTableColumn<Message,?>> sortOrder =
-					headerTable.getSortOrder();
-				sortOrder.add(headerTable.getColumns().get(0));
-				sortOrder.remove(sortOrder.size() - 1);
+				unreadDeltas.merge(boardName, 1, Integer::sum);
+			}
+		}
 
-				// restore selected item
-				// some item insertions/permutations break selection
+		LOG.log(Level.FINEST, "received {0} new messages ({1} in current "
+				+ "folder)", new Object[]{
+				messages.size(), folderMessages.size()});
+
+		if (folderLoader.isLoading()) {
+			pendingMessages.addAll(folderMessages);
+		} else if (folderMessages.size() >= BULK_RELOAD_COUNT &&
+				folderQuery != null) {
+			// e.g., catching up after being offline: a single query is
+			// cheaper than inserting each message into the tree
+			loadMessageTree(folderQuery, folderThreaded, true);
+		} else if (!folderMessages.isEmpty()) {
+			TreeItem<Message> selectedItem = headerTable.getSelectionModel()
+				.getSelectedItem();
+			ignoreMessageRowSelection = true;
+			authorView = authorView.withIdentities(
+					getIdentityIds(folderMessages));
+			for (jfms.fms.Message message : folderMessages) {
+				insertMessageIntoTree(createMessage(message, authorView),
+						threadedView, headerRootItem.getChildren());
+			}
+
+			// restore selected item
+			// some item insertions/permutations break selection
+			if (headerTable.getSelectionModel().getSelectedItem() != selectedItem) {
 				headerTable.getSelectionModel().select(selectedItem);
-				ignoreMessageRowSelection = false;
 			}
+			ignoreMessageRowSelection = false;
+		}
+
+		unreadCounts.add(unreadDeltas);
+		// every new message is unread
+		BoardCounters.getInstance().add(unreadDeltas);
+	}
+
+	/**
+	 * Queries the message and unread counts of all boards again, e.g.,
+	 * if they got out of sync with the store.
+	 */
+	public void rebuildBoardCounters() {
+		BoardCounters.getInstance().rebuild();
 
-			changeReadCount(Mode.BOARD, boardName, 1);
+		final List<String> boardNames =
+			new ArrayList<>(unreadCounts.getBoardNames());
+		final Map<String, Integer> modifications = new HashMap<>();
+		for (String boardName : boardNames) {
+			modifications.put(boardName,
+					unreadCounts.getModificationCount(boardName));
 		}
+
+		counterLoader.load(() -> {
+			StoreWriter.getInstance().flush();
+
+			final jfms.fms.BoardManager boardManager =
+				fmsManager.getBoardManager();
+			final Map<String, Integer> counts = new HashMap<>();
+			for (String boardName : boardNames) {
+				if (FolderLoader.isCancelled()) {
+					return null;
+				}
+				counts.put(boardName, QueryStats.getInstance().time(
+							"getUnreadMessageCount",
+							() -> boardManager.getUnreadMessageCount(boardName)));
+			}
+
+			return counts;
+		}, counts -> {
+			if (counts == null) {
+				return;
+			}
+
+			for (Map.Entry<String, Integer> e : counts.entrySet()) {
+				// the query may or may not include changes made meanwhile,
+				// keep the incrementally updated count in that case
+				final String boardName = e.getKey();
+				if (unreadCounts.getModificationCount(boardName) ==
+						modifications.get(boardName)) {
+					unreadCounts.set(boardName, e.getValue());
+				} else {
+					LOG.log(Level.FINE, "board {0} changed while counting "
+							+ "unread messages", boardName);
+				}
+			}
+		});
 	}
 
 	private void hideLocalMessage(MessageReference msgRef) {
 		List<TreeItem<Message>> items = headerRootItem.getChildren();
 		for (int i=0; i<items.size(); i++) {
 			Message msg = items.get(i).getValue();
-			String date = msgRef.getDate().format(
-					DateTimeFormatter.ISO_LOCAL_DATE);
 			if (msgRef.getIdentityId() == msg.getIdentityId() &&
 					msgRef.getIndex() == msg.getIndex() &&
-					date.equals(msg.getIndexDate())) {
+					msgRef.getDate().equals(msg.getIndexLocalDate())) {
 
 				items.remove(i);
 				break;
@@ -1766,7 +2125,9 @@ public class NewsPane {
 	private void insertNewLocalMessage(MessageReference msgRef,
 			InsertStatus status, InsertStatus previousStatus) {
 
-		Map<Integer, LocalIdentity> identities = fmsManager.getStore().retrieveLocalIdentities();
+		Map<Integer, LocalIdentity> identities = QueryStats.getInstance().time(
+				"retrieveLocalIdentities",
+				fmsManager.getStore()::retrieveLocalIdentities);
 		LocalIdentity id = identities.get(msgRef.getIdentityId());
 
 		Message message = createLocalMessage(msgRef);
@@ -1832,19 +2193,23 @@ public class NewsPane {
 					headerRootItem.getChildren());
 		}
 
-		changeReadCount(Mode.DRAFT, null, draftDelta);
-		changeReadCount(Mode.OUTBOX, null, outBoxDelta);
+		changeReadCount(draftFolder, draftDelta);
+		changeReadCount(outFolder, outBoxDelta);
 	}
 
-	private void createLocalMessageTree(InsertStatus insertStatus) {
-		List<Message> boardMessages = new ArrayList<>();
+	private List<Message> getLocalMessages(InsertStatus insertStatus) {
+		List<Message> messages = new ArrayList<>();
 
-		Map<Integer, LocalIdentity> identities = fmsManager.getStore().retrieveLocalIdentities();
+		Map<Integer, LocalIdentity> identities = QueryStats.getInstance().time(
+				"retrieveLocalIdentities",
+				fmsManager.getStore()::retrieveLocalIdentities);
 		for (Map.Entry<Integer, LocalIdentity> e : identities.entrySet()) {
 			int localIdentityId = e.getKey();
 			LocalIdentity localIdentity = e.getValue();
 
-			List<MessageReference> msgRefs = fmsManager.getStore().getLocalMessageList(localIdentityId, insertStatus, null, -1);
+			List<MessageReference> msgRefs = QueryStats.getInstance().time(
+					"getLocalMessageList", () -> fmsManager.getStore()
+					.getLocalMessageList(localIdentityId, insertStatus, null, -1));
 			for (MessageReference msgRef : msgRefs) {
 				Message message = createLocalMessage(msgRef);
 				message.setIdentityId(localIdentityId);
@@ -1853,164 +2218,206 @@ public class NewsPane {
 				message.setIsNew(insertStatus == InsertStatus.NOT_INSERTED ||
 						insertStatus == InsertStatus.DRAFT);
 
-				boardMessages.add(message);
+				messages.add(message);
 			}
 		}
 
-		createMessageTree(boardMessages, false);
-	}
-
-	private void createFmsMessageTree(String boardName, boolean threaded) {
-		List<Message> boardMessages = new ArrayList<>();
-
-		for (jfms.fms.Message m : fmsManager.getStore().getMessagesForBoard(boardName)) {
-			boardMessages.add(createMessage(m));
-		}
-
-		createMessageTree(boardMessages, threaded);
-	}
-
-	private void createRecentFmsMessageTree(boolean threaded) {
-		List<Message> boardMessages = new ArrayList<>();
-
-		for (jfms.fms.Message m : fmsManager.getStore().getRecentMessages(
-				Config.getInstance().getShowSubscribedOnly())) {
-
-			boardMessages.add(createMessage(m));
-		}
-
-		createMessageTree(boardMessages, threaded);
+		return messages;
 	}
 
-	private void createStarredFmsMessageTree(boolean threaded) {
-		List<Message> boardMessages = new ArrayList<>();
+	private static Set<Integer> getIdentityIds(
+			List<jfms.fms.Message> fmsMessages) {
 
-		for (jfms.fms.Message m : fmsManager.getStore().getStarredMessages()) {
-			boardMessages.add(createMessage(m));
+		final Set<Integer> identityIds = new HashSet<>();
+		for (jfms.fms.Message m : fmsMessages) {
+			identityIds.add(m.getIdentityId());
 		}
 
-		createMessageTree(boardMessages, threaded);
+		return identityIds;
 	}
 
-	private void createSearchResultsMessageTree(String searchName,
-			boolean threaded) {
+	private List<Message> createMessages(List<jfms.fms.Message> fmsMessages,
+			MessageTree tree) {
+		List<Message> messages = new ArrayList<>(fmsMessages.size());
+		tree.authors = AuthorView.create(getIdentityIds(fmsMessages));
 
-		MessageSearchCriteria msc = searchFolders.get(searchName);
-
-		List<Message> boardMessages = new ArrayList<>();
-
-		for (jfms.fms.Message m : fmsManager.getStore().findMessages(msc)) {
-			boardMessages.add(createMessage(m));
+		for (jfms.fms.Message m : fmsMessages) {
+			if (FolderLoader.isCancelled()) {
+				break;
+			}
+			messages.add(createMessage(m, tree.authors));
 		}
 
-		createMessageTree(boardMessages, threaded);
-		messageBody.setHighlight(msc.getBody());
+		return messages;
 	}
 
 	private void insertMessageIntoTree(final Message m, boolean threaded,
 			final List<TreeItem<Message>> rootNodes) {
 		TreeItem<Message> newNode = new TreeItem<>(m);
+		threadIndex.addNode(newNode);
 		if (!threaded) {
-			rootNodes.add(newNode);
+			addSorted(rootNodes, newNode);
 			return;
 		}
 
-		boolean isRootNode = true;
-
-		final String newMessageId = m.getMessageId();
-
 		// check if we are parent of any existing nodes
-		Iterator<TreeItem<Message>> iter = rootNodes.iterator();
-		while (iter.hasNext()) {
-			TreeItem<Message> rootNode = iter.next();
-			final String rootNodeParentId = rootNode.getValue().getParentMessageId();
+		List<TreeItem<Message>> children =
+			threadIndex.removeOrphans(m.getMessageId());
+		if (!children.isEmpty()) {
+			final MessageComparator comparator = createMessageComparator();
+			if (comparator.isEmpty()) {
+				// arrival order, remove all in a single pass
+				rootNodes.removeAll(new HashSet<>(children));
+			} else {
+				for (TreeItem<Message> child : children) {
+					SortedLists.remove(rootNodes, child, comparator);
+				}
+			}
+			for (TreeItem<Message> child : children) {
+				final long childDate =
+					child.getValue().getLastReplyTimestamp();
+				if (childDate > m.getLastReplyTimestamp()) {
+					m.setLastReplyTimestamp(childDate);
+				}
+			}
 
-			if (rootNodeParentId != null && rootNodeParentId.equals(newMessageId)) {
-				iter.remove();
-				newNode.getChildren().add(rootNode);
-				newNode.setExpanded(true);
+			if (!comparator.isEmpty()) {
+				children.sort(comparator);
 			}
+			newNode.getChildren().addAll(children);
+			newNode.setExpanded(true);
 		}
 
 		// check if any existing node is our parent
 		final String newParentId = m.getParentMessageId();
-		if (newParentId != null) {
-			for (TreeItem<Message> rootNode : rootNodes) {
-				TreeItem<Message> parent = findMessageNode(rootNode,
-						newParentId);
-				if (parent != null) {
-					if (m.getDate().compareTo(parent.getValue().getDate()) > 0) {
-						parent.getValue().setLastReplyDate(m.getDate());
-					}
-					parent.getChildren().add(newNode);
-					isRootNode = false;
+		TreeItem<Message> parent = threadIndex.getNode(newParentId);
 
-					// expand thread so the new message is not hidden
-					while (parent != null) {
-						parent.setExpanded(true);
-						parent = parent.getParent();
-					}
+		// avoid being-your-own-parent paradox
+		TreeItem<Message> ancestor = parent;
+		while (ancestor != null) {
+			if (ancestor == newNode) {
+				parent = null;
+				break;
+			}
+			ancestor = ancestor.getParent();
+		}
 
-					break;
+		if (parent == null) {
+			if (newParentId != null) {
+				threadIndex.addOrphan(newNode);
+			}
+			addSorted(rootNodes, newNode);
+			return;
+		}
+
+		addSorted(parent.getChildren(), newNode);
+
+		// expand thread so the new message is not hidden
+		final long newestDate = m.getLastReplyTimestamp();
+		while (parent != null) {
+			parent.setExpanded(true);
+			final Message parentMessage = parent.getValue();
+			if (parentMessage != null &&
+					newestDate > parentMessage.getLastReplyTimestamp()) {
+				if (threadSort) {
+					// sort key of thread changes, move to new position;
+					// the old key is needed to find the current one
+					final List<TreeItem<Message>> siblings =
+						parent.getParent().getChildren();
+					removeSorted(siblings, parent);
+					parentMessage.setLastReplyTimestamp(newestDate);
+					addSorted(siblings, parent);
+				} else {
+					parentMessage.setLastReplyTimestamp(newestDate);
 				}
 			}
+			parent = parent.getParent();
+		}
+	}
+
+	/**
+	 * Inserts a node at the position defined by the current sort order.
+	 * Siblings are expected to be sorted already, so a binary search is
+	 * sufficient.
+	 */
+	private void addSorted(List<TreeItem<Message>> siblings,
+			TreeItem<Message> node) {
+
+		final MessageComparator comparator = createMessageComparator();
+		if (comparator.isEmpty()) {
+			siblings.add(node);
+			return;
 		}
 
-		if (isRootNode) {
-			rootNodes.add(newNode);
+		SortedLists.add(siblings, node, comparator);
+	}
+
+	/**
+	 * Removes a node from siblings sorted by the current sort order.
+	 */
+	private void removeSorted(List<TreeItem<Message>> siblings,
+			TreeItem<Message> node) {
+
+		final MessageComparator comparator = createMessageComparator();
+		if (comparator.isEmpty()) {
+			siblings.remove(node);
+			return;
 		}
+
+		SortedLists.remove(siblings, node, comparator);
 	}
 
 	private List<TreeItem<Message>> createMessageTreeNodes(
-			List<Message> messages, boolean threaded) {
+			List<Message> messages, boolean threaded,
+			boolean collapseReadThreads, ThreadIndex index) {
 
 		final List<TreeItem<Message>> rootNodes = new ArrayList<>();
 		if (!threaded) {
 			for (Message m : messages) {
-				rootNodes.add(new TreeItem<>(m));
+				TreeItem<Message> node = new TreeItem<>(m);
+				index.addNode(node);
+				rootNodes.add(node);
 			}
 
 			return rootNodes;
 		}
 
-		final Map<String, TreeItem<Message>> nodesMap = new HashMap<>();
-		final Map<String, Message> messageMap = new HashMap<>();
-
+		final List<TreeItem<Message>> nodes = new ArrayList<>(messages.size());
 		for (Message m : messages) {
-			messageMap.put(m.getMessageId(), m);
+			TreeItem<Message> node = new TreeItem<>(m);
+			index.addNode(node);
+			nodes.add(node);
 		}
 
-		for (Message m : messages) {
-			final String id = m.getMessageId();
-			TreeItem<Message> node = nodesMap.computeIfAbsent(id,
-					k -> new TreeItem<>(m));
+		for (TreeItem<Message> node : nodes) {
+			final Message m = node.getValue();
+			m.setLastReplyTimestamp(m.getTimestamp());
 
-			String parentId = m.getParentMessageId();
-			if (parentId == null || !messageMap.containsKey(parentId)) {
+			final String parentId = m.getParentMessageId();
+			TreeItem<Message> parentNode = index.getNode(parentId);
+			if (parentNode == null) {
 				// message without parent -> create node at top level
+				if (parentId != null) {
+					// remember missing parent in case it arrives later
+					index.addOrphan(node);
+				}
 				rootNodes.add(node);
 				continue;
 			}
 
-			// if absent: parent not yet allocated -> create new node for parent
-			TreeItem<Message> parentNode = nodesMap.computeIfAbsent(parentId,
-					k -> new TreeItem<>(messageMap.get(parentId)));
-
 			// avoid being-your-own-parent paradox
 			boolean isWellFormed = true;
 			TreeItem<Message> ancestor = parentNode;
-			String newestDate = m.getDate();
-			m.setLastReplyDate(newestDate);
 
 			while (ancestor != null) {
-				if (ancestor.getValue().getMessageId().equals(id)) {
+				if (ancestor == node) {
 					isWellFormed = false;
 					break;
 				}
 				ancestor = ancestor.getParent();
 			}
 
-			// create new node for message and add as child
+			// add node as child
 			if (isWellFormed) {
 				parentNode.getChildren().add(node);
 			} else {
@@ -2018,10 +2425,10 @@ public class NewsPane {
 			}
 		}
 
-		for (TreeItem<Message> node : nodesMap.values()) {
+		for (TreeItem<Message> node : nodes) {
 
 			final Message message = node.getValue();
-			String newestDate = message.getDate();
+			final long newestDate = message.getTimestamp();
 			TreeItem<Message> ancestor = node.getParent();
 			final boolean expand = collapseReadThreads && message.getIsNew();
 
@@ -2034,71 +2441,121 @@ public class NewsPane {
 				if (expand) {
 					ancestor.setExpanded(true);
 				}
-				if (newestDate.compareTo(ancestor.getValue().getLastReplyDate()) > 0) {
-					ancestor.getValue().setLastReplyDate(newestDate);
+				if (newestDate > ancestor.getValue().getLastReplyTimestamp()) {
+					ancestor.getValue().setLastReplyTimestamp(newestDate);
 				}
 				ancestor = ancestor.getParent();
 			}
 		}
 
+		if (collapseReadThreads) {
+			// attach replies of collapsed threads on demand
+			for (int i=0; i<rootNodes.size(); i++) {
+				final TreeItem<Message> node = rootNodes.get(i);
+				if (node.isExpanded() || node.isLeaf()) {
+					continue;
+				}
+
+				final List<TreeItem<Message>> replies =
+					new ArrayList<>(node.getChildren());
+				node.getChildren().clear();
+
+				final LazyThreadItem thread =
+					new LazyThreadItem(node.getValue(), replies, index);
+				index.replaceNode(node, thread);
+				index.addLazyThread(thread, replies);
+				rootNodes.set(i, thread);
+			}
+		}
+
 		return rootNodes;
 	}
 
 	private void markBoardRead(TreeItem<Board> selectedBoard) {
 		final String boardName = selectedBoard.getValue().getName();
-		jfms.fms.BoardManager boardManager = fmsManager.getBoardManager();
+		final jfms.fms.BoardManager boardManager = fmsManager.getBoardManager();
 
-		boardManager.setBoardMessagesRead(boardName, true);
-		selectedBoard.setValue(new Board(boardName, 0));
+		// runs after pending changes of single messages; messages received
+		// before the store was updated are read as well, so the counts are
+		// updated again once the update is done
+		showBoardRead(boardName);
+		StoreWriter.getInstance().submit(() -> {
+			QueryStats.getInstance().run("setBoardMessagesRead",
+					() -> boardManager.setBoardMessagesRead(boardName, true));
+			return null;
+		}, v -> showBoardRead(boardName));
+	}
 
-		int row = 0;
-		TreeItem<Message> msgItem;
-		while ((msgItem = headerTable.getTreeItem(row++)) != null) {
-			final Message msg = msgItem.getValue();
-			if (!msg.getIsNew()) {
-				continue;
+	private void showBoardRead(String boardName) {
+		unreadCounts.set(boardName, 0);
+
+		if (mode != Mode.BOARD || !boardName.equals(currentFolder)) {
+			return;
+		}
+
+		// update cross-posted boards in a single batch
+		final Map<String, Integer> unreadDeltas = new HashMap<>();
+		for (Message msg : markMessagesRead()) {
+			for (String b : msg.getBoardList()) {
+				if (!b.equals(boardName)) {
+					unreadDeltas.merge(b, -1, Integer::sum);
+				}
 			}
+		}
+		unreadCounts.add(unreadDeltas);
+	}
 
-			msg.setIsNew(false);
-			redrawRow(msg);
+	/**
+	 * Clears the new flag of all messages in the header table.
+	 * @return messages that were unread
+	 */
+	private List<Message> markMessagesRead() {
+		final List<Message> messages = new ArrayList<>();
+		final Deque<TreeItem<Message>> stack = new ArrayDeque<>();
+		stack.push(headerRootItem);
+		while (!stack.isEmpty()) {
+			for (TreeItem<Message> item : stack.pop().getChildren()) {
+				final Message msg = item.getValue();
+				if (msg.getIsNew()) {
+					msg.setIsNew(false);
+					redrawRow(msg);
+					unreadIndex.setUnread(msg, false);
+					messages.add(msg);
+				}
 
-			final int boardCount = msg.getBoardList().size();
-			if (boardCount > 1) {
-				for (int i=1; i<boardCount; i++) {
-					changeReadCount(Mode.BOARD, msg.getBoardList().get(i), -1);
+				// replies of collapsed threads are all read
+				if (!item.isLeaf() && !isLazyThread(item)) {
+					stack.push(item);
 				}
 			}
 		}
+
+		return messages;
 	}
 
 	private void markAllMessagesRead() {
-		Store store = FmsManager.getInstance().getStore();
-		store.setAllMessagesRead();
+		// see markBoardRead
+		showAllMessagesRead();
+		final Store store = fmsManager.getStore();
+		StoreWriter.getInstance().submit(() -> {
+			QueryStats.getInstance().run("setAllMessagesRead",
+					store::setAllMessagesRead);
+			return null;
+		}, v -> showAllMessagesRead());
+	}
 
-		for (TreeItem<Board> b : fmsFolder.getChildren()) {
-			b.setValue(new Board(b.getValue().getName(), 0));
-		}
+	private void showAllMessagesRead() {
+		unreadCounts.clearAll();
 
 		switch (mode) {
 		case RECENTLY_RECEIVED:
 		case STARRED:
 		case SEARCH_RESULTS:
 		case BOARD:
+			markMessagesRead();
 			break;
 		default:
-			return;
-		}
-
-		int row = 0;
-		TreeItem<Message> msgItem;
-		while ((msgItem = headerTable.getTreeItem(row++)) != null) {
-			final Message msg = msgItem.getValue();
-			if (!msg.getIsNew()) {
-				continue;
-			}
-
-			msg.setIsNew(false);
-			redrawRow(msg);
+			break;
 		}
 	}
 
@@ -2115,17 +2572,46 @@ public class NewsPane {
 			signature = null;
 		}
 
-		final Store store = FmsManager.getInstance().getStore();
-		final int id = message.getStoreId();
-		final String body = store.getMessageBody(id);
+		final String body = messageCache.getBody(message.getStoreId());
 
 		currentMessage.setAll(message);
-		messageBody.setText(body, signature);
+		messageBody.setText(message.getStoreId(), body, signature);
 		updateAttachments(getShowAttachments());
 		setMessageReadStatus(message, true);
 		avatar.setIdentityId(identityId);
 	}
 
+	/**
+	 * Loads the messages that are likely to be read next in the background:
+	 * the neighbours of the selected message and the next unread messages.
+	 */
+	private void prefetchMessages(TreeItem<Message> selectedItem) {
+		final Set<Integer> messageIds = new LinkedHashSet<>();
+
+		TreeItem<Message> unreadItem = selectedItem;
+		for (int i=0; i<PREFETCH_UNREAD_COUNT; i++) {
+			unreadItem = unreadIndex.next(unreadItem);
+			if (unreadItem == null) {
+				break;
+			}
+			messageIds.add(unreadItem.getValue().getStoreId());
+		}
+
+		final int row = headerTable.getRow(selectedItem);
+		for (int r : new int[]{row + 1, row - 1}) {
+			final TreeItem<Message> item = headerTable.getTreeItem(r);
+			if (item != null) {
+				messageIds.add(item.getValue().getStoreId());
+			}
+		}
+
+		messageIds.remove(-1);
+		messageIds.remove(selectedItem.getValue().getStoreId());
+		if (!messageIds.isEmpty()) {
+			messageCache.prefetch(messageIds, getShowAttachments());
+		}
+	}
+
 	private void updateAttachments(boolean showAttachments) {
 		attachmentsVBox.getChildren().clear();
 		if (!showAttachments) {
@@ -2137,8 +2623,7 @@ public class NewsPane {
 			return;
 		}
 
-		final Store store = FmsManager.getInstance().getStore();
-		List<Attachment> attachments = store.getAttachments(messageId);
+		List<Attachment> attachments = messageCache.getAttachments(messageId);
 
 		for (Attachment a : attachments) {
 			final String key = a.getKey();
@@ -2172,10 +2657,10 @@ public class NewsPane {
 
 	private jfms.fms.Message getLocalMessage(Message message) {
 		Store store = FmsManager.getInstance().getStore();
-		final LocalDate indexDate = LocalDate.parse(message.getIndexDate(),
-					DateTimeFormatter.ISO_LOCAL_DATE);
-		String xmlMessage = store.getLocalMessage(message.getIdentityId(),
-				indexDate, message.getIndex());
+		final LocalDate indexDate = message.getIndexLocalDate();
+		String xmlMessage = QueryStats.getInstance().time("getLocalMessage",
+				() -> store.getLocalMessage(message.getIdentityId(),
+					indexDate, message.getIndex()));
 
 		jfms.fms.xml.MessageParser parser = new jfms.fms.xml.MessageParser();
 		jfms.fms.Message parsedMessage = parser.parse(new ByteArrayInputStream(
@@ -2198,7 +2683,9 @@ public class NewsPane {
 			return;
 		}
 
-		Message localMessage = createMessage(parsedMessage);
+		Message localMessage = createMessage(parsedMessage,
+				AuthorView.create(Collections.singleton(
+						parsedMessage.getIdentityId())));
 		localMessage.setFrom(message.getFrom());
 
 		currentMessage.setAll(localMessage);
@@ -2206,76 +2693,26 @@ public class NewsPane {
 		avatar.setIdentityId(-1);
 	}
 
-	private TreeItem<Message> findMessageNode(TreeItem<Message> node, String messageId) {
-		Message msg = node.getValue();
-		if (msg != null && msg.getMessageId().equals(messageId)) {
-			return node;
-		}
-
-		for (TreeItem<Message> child : node.getChildren()) {
-			TreeItem<Message> requestedNode = findMessageNode(child, messageId);
-			if (requestedNode != null) {
-				return requestedNode;
-			}
-		}
-
-		return null;
-	}
-
-	private void createMessageTree(List<Message> boardMessages, boolean threaded) {
-		List<TreeItem<Message>> rootNodes =
-			createMessageTreeNodes(boardMessages, threaded);
-
-		LOG.log(Level.FINEST, "found {0} messages in {1} threads", new Object[]{
-				boardMessages.size(), rootNodes.size()});
-
-		TreeItem<Message> newMessagesRoot = new TreeItem<>();
-		newMessagesRoot.getChildren().setAll(rootNodes);
-
-		headerTable.setRoot(newMessagesRoot);
-		headerRootItem = newMessagesRoot;
-	}
-
 	private void setMessageReadStatus(Message message, boolean markRead) {
 		if (message.getIsNew() == markRead) {
 			message.setIsNew(!markRead);
 			redrawRow(message);
+			unreadIndex.setUnread(message, !markRead);
 
-			final Store store = FmsManager.getInstance().getStore();
-			store.setMessageRead(message.getStoreId(), markRead);
+			StoreWriter.getInstance().setMessageRead(message.getStoreId(),
+					markRead);
 
 			for (String boardName : message.getBoardList()) {
-				changeReadCount(Mode.BOARD, boardName, markRead ? -1 : 1);
+				unreadCounts.add(boardName, markRead ? -1 : 1);
 			}
 		}
 	}
 
-	private void changeReadCount(Mode mode, String name, int delta) {
+	private void changeReadCount(TreeItem<Board> boardItem, int delta) {
 		if (delta == 0) {
 			return;
 		}
 
-		TreeItem<Board> boardItem = null;
-
-		if (mode == Mode.DRAFT) {
-			boardItem = draftFolder;
-		} else if (mode == Mode.OUTBOX ) {
-			boardItem = outFolder;
-		} else if (mode == Mode.BOARD) {
-			// TODO is there an easy way to avoid iterating over
-			// all shown boards?
-			for (TreeItem<Board> b : fmsFolder.getChildren()) {
-				if (b.getValue().getName().equals(name)) {
-					boardItem = b;
-				}
-			}
-		}
-
-		if (boardItem == null) {
-			// cross-posted board not subscribed, skip
-			return;
-		}
-
 		int count = boardItem.getValue().getUnreadMessageCount() + delta;
 		if (count < 0) {
 			LOG.log(Level.WARNING, "tried to set read count < 0");
@@ -2298,15 +2735,13 @@ public class NewsPane {
 
 
 	private void deleteLocalMessage(Message message) {
-		LocalDate date = LocalDate.parse(message.getIndexDate(),
-				DateTimeFormatter.ISO_LOCAL_DATE);
+		LocalDate date = message.getIndexLocalDate();
 
 		FmsManager.getInstance().getMessageManager().deleteQueuedMessage(
 				message.getIdentityId(), date, message.getIndex());
 		MessageReference msgRef = new MessageReference();
 		msgRef.setIdentityId(message.getIdentityId());
-		msgRef.setDate(LocalDate.parse(message.getIndexDate(),
-					DateTimeFormatter.ISO_LOCAL_DATE));
+		msgRef.setDate(date);
 		msgRef.setIndex(message.getIndex());
 
 		final InsertStatus previousStatus;
@@ -129,8 +129,10 @@ public class PuzzleDialog implements PuzzleListener {
 				if (!solution.isEmpty()) {
 					IntroductionPuzzle puzzle = puzzles.get(i);
 					Store store = FmsManager.getInstance().getStore();
-					store.saveIdentityIntroduction(localIdentityId, date,
-						puzzle.getUuid(), solution);
+					QueryStats.getInstance().run("saveIdentityIntroduction",
+							() -> store.saveIdentityIntroduction(
+								localIdentityId, date, puzzle.getUuid(),
+								solution));
 				}
 			}
 		}
@@ -0,0 +1,143 @@
+package jfms.ui;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Records call count, latency and number of returned rows of named store
+ * queries. Statistics can be queried at runtime and are logged on
+ * shutdown.
+ */
+class QueryStats {
+	private static final QueryStats instance = new QueryStats();
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	public static final class Entry {
+		private final String name;
+		private final AtomicLong calls = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLong rows = new AtomicLong();
+
+		private Entry(String name) {
+			this.name = name;
+		}
+
+		private void add(long nanos, int rowCount) {
+			calls.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+			maxNanos.accumulateAndGet(nanos, Math::max);
+			rows.addAndGet(rowCount);
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCalls() {
+			return calls.get();
+		}
+
+		public long getTotalMillis() {
+			return totalNanos.get() / 1000000;
+		}
+
+		public long getMaxMillis() {
+			return maxNanos.get() / 1000000;
+		}
+
+		public long getRows() {
+			return rows.get();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder str = new StringBuilder(name);
+			str.append(": ");
+			str.append(getCalls());
+			str.append(" calls, ");
+			str.append(getTotalMillis());
+			str.append(" ms total, ");
+			str.append(getMaxMillis());
+			str.append(" ms max, ");
+			str.append(getRows());
+			str.append(" rows");
+
+			return str.toString();
+		}
+	}
+
+	public static QueryStats getInstance() {
+		return instance;
+	}
+
+	private static int countRows(Object result) {
+		if (result == null) {
+			return 0;
+		} else if (result instanceof Collection) {
+			return ((Collection<?>)result).size();
+		} else if (result instanceof Map) {
+			return ((Map<?,?>)result).size();
+		} else {
+			return 1;
+		}
+	}
+
+	QueryStats() {
+	}
+
+	/**
+	 * Runs a query and records its statistics.
+	 * The number of rows is the size of the result if it is a collection
+	 * or map, otherwise 1 (0 for null).
+	 */
+	public <T> T time(String name, Supplier<T> query) {
+		final long start = System.nanoTime();
+		T result = null;
+		try {
+			result = query.get();
+			return result;
+		} finally {
+			getEntry(name).add(System.nanoTime() - start, countRows(result));
+		}
+	}
+
+	public void run(String name, Runnable update) {
+		time(name, () -> {
+			update.run();
+			return null;
+		});
+	}
+
+	/**
+	 * @return statistics of all queries, slowest (by total time) first
+	 */
+	public List<Entry> getEntries() {
+		List<Entry> list = new ArrayList<>(entries.values());
+		list.sort((a, b) -> Long.compare(b.totalNanos.get(),
+					a.totalNanos.get()));
+
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder();
+		for (Entry e : getEntries()) {
+			str.append('\n');
+			str.append(e);
+		}
+
+		return str.toString();
+	}
+
+	private Entry getEntry(String name) {
+		return entries.computeIfAbsent(name, Entry::new);
+	}
+}
@@ -0,0 +1,97 @@
+package jfms.ui;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache for rendered message documents.
+ * Documents are keyed by message, signature, rendering options and
+ * highlight term. The cache is limited by the total number of characters
+ * of the cached documents.
+ */
+class RenderCache {
+	private static final int DEFAULT_MAX_CHARS = 4 * 1024 * 1024;
+
+	public static final class Key {
+		private final int messageId;
+		private final int signatureHash;
+		private final int flags;
+		private final String highlight;
+
+		public Key(int messageId, String signature, int flags,
+				String highlight) {
+			this.messageId = messageId;
+			this.signatureHash = Objects.hashCode(signature);
+			this.flags = flags;
+			this.highlight = highlight;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+
+			final Key other = (Key)obj;
+			return messageId == other.messageId &&
+				signatureHash == other.signatureHash &&
+				flags == other.flags &&
+				Objects.equals(highlight, other.highlight);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = messageId;
+			hash = 31 * hash + signatureHash;
+			hash = 31 * hash + flags;
+			hash = 31 * hash + Objects.hashCode(highlight);
+
+			return hash;
+		}
+	}
+
+	private final Map<Key, String> entries =
+		new LinkedHashMap<>(64, 0.75f, true);
+	private final long maxChars;
+	private long currentChars;
+
+	public RenderCache() {
+		this(DEFAULT_MAX_CHARS);
+	}
+
+	public RenderCache(long maxChars) {
+		this.maxChars = maxChars;
+	}
+
+	public String get(Key key) {
+		return entries.get(key);
+	}
+
+	public void put(Key key, String html) {
+		if (html.length() > maxChars) {
+			return;
+		}
+
+		final String oldHtml = entries.put(key, html);
+		if (oldHtml != null) {
+			currentChars -= oldHtml.length();
+		}
+		currentChars += html.length();
+
+		final Iterator<String> iter = entries.values().iterator();
+		while (currentChars > maxChars) {
+			currentChars -= iter.next().length();
+			iter.remove();
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+		currentChars = 0;
+	}
+}
@@ -152,12 +152,17 @@ public class SettingsDialog {
 			case "Messages":
 				entries = new int[] {
 					Config.WEBVIEW,
+					Config.LARGE_MESSAGE_SIZE,
 					Config.SHOW_AVATARS,
 				};
 				infoText = "WebView uses a built-in HTML browser to render "
 					+ "messages (requires restart). Certain features (e.g., "
 					+ "emoticons) are only available in WebView.\n"
 					+ "\n"
+					+ "Large messages are shown as plain lines without "
+					+ "emoticons and links; lines containing a search term "
+					+ "are highlighted as a whole.\n"
+					+ "\n"
 					+ "Avatars will be saved in directory "
 					+ Constants.AVATAR_DIR + " if enabled (requires restart).";
 				break;
@@ -0,0 +1,75 @@
+package jfms.ui;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Insertion into and removal from sorted lists using binary search.
+ * Used for the siblings in the message tree, so adding a message or
+ * re-parenting a top level node does not scan all top level nodes.
+ */
+final class SortedLists {
+	private SortedLists() {
+	}
+
+	/**
+	 * Inserts an element after all equal elements.
+	 * @param list list sorted by the comparator
+	 */
+	public static <T> void add(List<T> list, T element,
+			Comparator<? super T> comparator) {
+
+		int index = Collections.binarySearch(list, element, comparator);
+		if (index < 0) {
+			index = -index - 1;
+		} else {
+			// insert after equal elements to keep arrival order
+			while (index < list.size() &&
+					comparator.compare(list.get(index), element) == 0) {
+				index++;
+			}
+		}
+
+		list.add(index, element);
+	}
+
+	/**
+	 * Removes an element (compared by identity).
+	 * The sort key of the element must not have changed since it was
+	 * inserted; otherwise the list is searched linearly.
+	 * @param list list sorted by the comparator
+	 * @return true if the element was found
+	 */
+	public static <T> boolean remove(List<T> list, T element,
+			Comparator<? super T> comparator) {
+
+		final int index = Collections.binarySearch(list, element, comparator);
+		if (index >= 0) {
+			// search the range of equal elements
+			for (int i=index; i>=0 &&
+					comparator.compare(list.get(i), element) == 0; i--) {
+				if (list.get(i) == element) {
+					list.remove(i);
+					return true;
+				}
+			}
+			for (int i=index+1; i<list.size() &&
+					comparator.compare(list.get(i), element) == 0; i++) {
+				if (list.get(i) == element) {
+					list.remove(i);
+					return true;
+				}
+			}
+		}
+
+		for (int i=0; i<list.size(); i++) {
+			if (list.get(i) == element) {
+				list.remove(i);
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
@@ -0,0 +1,254 @@
+package jfms.ui;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+
+import jfms.fms.FmsManager;
+import jfms.store.Store;
+
+/**
+ * Write-behind queue for store updates triggered by the UI.
+ * Updates are coalesced (only the last value per message or identity is
+ * written) and applied by a single writer thread after a short delay, so
+ * the FX thread does not wait for the database. Pending values are
+ * visible through the query methods until they have been written, so
+ * only values that are read through these methods may be queued.
+ * Each update is a separate store call; Store has no batch or transaction
+ * API, and a failed update must not roll back the others.
+ * Updates that must be applied in order with the queued updates (e.g.,
+ * marking a board read) can be run on the writer thread with
+ * {@link #submit}.
+ */
+class StoreWriter {
+	private static final Logger LOG = Logger.getLogger(StoreWriter.class.getName());
+	private static final long WRITE_DELAY_MILLIS = 500;
+
+	private static final StoreWriter instance = new StoreWriter();
+
+	private static class Updates {
+		private final Map<Integer, Boolean> messageRead = new LinkedHashMap<>();
+		private final Map<Integer, Integer> messageFlags = new LinkedHashMap<>();
+		private final Map<Integer, Boolean> avatarDisabled =
+			new LinkedHashMap<>();
+
+		public boolean isEmpty() {
+			return messageRead.isEmpty() && messageFlags.isEmpty() &&
+				avatarDisabled.isEmpty();
+		}
+
+		public int size() {
+			return messageRead.size() + messageFlags.size() +
+				avatarDisabled.size();
+		}
+	}
+
+	private volatile Thread writerThread;
+	private final ScheduledExecutorService executor =
+		Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "StoreWriter");
+			thread.setDaemon(true);
+			writerThread = thread;
+			return thread;
+		});
+
+	// guarded by this
+	private Updates pending = new Updates();
+	private Updates inFlight = new Updates();
+	private boolean writeScheduled = false;
+
+
+	public static StoreWriter getInstance() {
+		return instance;
+	}
+
+	private StoreWriter() {
+	}
+
+	public synchronized void setMessageRead(int messageId, boolean read) {
+		pending.messageRead.put(messageId, read);
+		scheduleWrite();
+	}
+
+	public synchronized void setMessageFlags(int messageId, int flags) {
+		pending.messageFlags.put(messageId, flags);
+		scheduleWrite();
+	}
+
+	public synchronized void setAvatarDisabled(int identityId,
+			boolean disabled) {
+		pending.avatarDisabled.put(identityId, disabled);
+		scheduleWrite();
+	}
+
+	/**
+	 * @param messageId store ID of the message
+	 * @param storedValue read status as returned by the store
+	 * @return read status including pending updates
+	 */
+	public synchronized boolean isMessageRead(int messageId,
+			boolean storedValue) {
+		for (Updates u : new Updates[]{pending, inFlight}) {
+			final Boolean read = u.messageRead.get(messageId);
+			if (read != null) {
+				return read;
+			}
+		}
+
+		return storedValue;
+	}
+
+	/**
+	 * @param messageId store ID of the message
+	 * @param storedValue flags as returned by the store
+	 * @return flags including pending updates
+	 */
+	public synchronized int getMessageFlags(int messageId, int storedValue) {
+		Integer flags = pending.messageFlags.get(messageId);
+		if (flags == null) {
+			flags = inFlight.messageFlags.get(messageId);
+		}
+
+		return flags != null ? flags : storedValue;
+	}
+
+	public boolean isAvatarDisabled(int identityId) {
+		synchronized (this) {
+			Boolean disabled = pending.avatarDisabled.get(identityId);
+			if (disabled == null) {
+				disabled = inFlight.avatarDisabled.get(identityId);
+			}
+			if (disabled != null) {
+				return disabled;
+			}
+		}
+
+		final Store store = FmsManager.getInstance().getStore();
+		return QueryStats.getInstance().time("isAvatarDisabled",
+				() -> store.isAvatarDisabled(identityId));
+	}
+
+	/**
+	 * Runs a store update on the writer thread after all pending updates
+	 * have been written.
+	 * @param task store update, runs on the writer thread
+	 * @param callback receives the result on the FX application thread;
+	 * not called if the task failed
+	 */
+	public <T> void submit(Callable<T> task, Consumer<T> callback) {
+		if (executor.isShutdown()) {
+			LOG.log(Level.FINE, "writer shut down, ignoring update");
+			return;
+		}
+
+		executor.submit(() -> {
+			write();
+
+			final T result;
+			try {
+				result = task.call();
+			} catch (Exception e) {
+				LOG.log(Level.WARNING, "failed to run update", e);
+				return;
+			}
+
+			Platform.runLater(() -> callback.accept(result));
+		});
+	}
+
+	/**
+	 * Writes all pending updates and waits until they are stored.
+	 * Must be called before store updates that are not queued and may
+	 * conflict with pending updates. May also be called from a task
+	 * running on the writer thread.
+	 */
+	public void flush() {
+		if (Thread.currentThread() == writerThread) {
+			// waiting for the executor would deadlock
+			write();
+			return;
+		}
+
+		if (executor.isShutdown()) {
+			return;
+		}
+
+		try {
+			executor.submit(this::write).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			LOG.log(Level.WARNING, "failed to write pending updates", e);
+		}
+	}
+
+	/**
+	 * Writes pending updates and stops the writer thread.
+	 */
+	public void shutdown() {
+		flush();
+		executor.shutdown();
+	}
+
+	private void scheduleWrite() {
+		if (!writeScheduled) {
+			writeScheduled = true;
+			executor.schedule(this::write, WRITE_DELAY_MILLIS,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void write() {
+		final Updates updates;
+		synchronized (this) {
+			writeScheduled = false;
+			if (pending.isEmpty()) {
+				return;
+			}
+
+			updates = pending;
+			inFlight = updates;
+			pending = new Updates();
+		}
+
+		LOG.log(Level.FINEST, "writing {0} pending updates", updates.size());
+		final Store store = FmsManager.getInstance().getStore();
+		try {
+			// a failed update must not prevent the remaining updates
+			for (Map.Entry<Integer, Boolean> e : updates.messageRead.entrySet()) {
+				writeUpdate("setMessageRead", e.getKey(),
+						() -> store.setMessageRead(e.getKey(), e.getValue()));
+			}
+			for (Map.Entry<Integer, Integer> e : updates.messageFlags.entrySet()) {
+				writeUpdate("setMessageFlags", e.getKey(),
+						() -> store.setMessageFlags(e.getKey(), e.getValue()));
+			}
+			for (Map.Entry<Integer, Boolean> e :
+					updates.avatarDisabled.entrySet()) {
+				writeUpdate("setAvatarDisabled", e.getKey(),
+						() -> store.setAvatarDisabled(e.getKey(), e.getValue()));
+			}
+		} finally {
+			synchronized (this) {
+				inFlight = new Updates();
+			}
+		}
+	}
+
+	private void writeUpdate(String name, int id, Runnable update) {
+		try {
+			QueryStats.getInstance().run(name, update);
+		} catch (Exception e) {
+			LOG.log(Level.WARNING, "failed to write update " + name
+					+ " for ID " + id, e);
+		}
+	}
+}
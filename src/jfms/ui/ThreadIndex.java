@@ -0,0 +1,181 @@
+package jfms.ui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Index of the message tree shown in the header pane.
+ * Maps message IDs to their tree nodes and keeps track of top level nodes
+ * whose parent message is not (yet) part of the tree. Both lookups are
+ * constant time, so inserting a message does not require a tree traversal.
+ * Replies in collapsed threads that are not attached yet are attached by
+ * {@link #getNode}.
+ */
+class ThreadIndex {
+	private final Map<String, TreeItem<Message>> nodes = new HashMap<>();
+	private final Map<String, List<TreeItem<Message>>> orphans =
+		new HashMap<>();
+	private final Map<String, LazyThreadItem> lazyThreads = new HashMap<>();
+
+	public void clear() {
+		nodes.clear();
+		orphans.clear();
+		lazyThreads.clear();
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/**
+	 * Checks whether a message is part of the tree.
+	 * Unlike {@link #getNode} this does not attach replies of collapsed
+	 * threads.
+	 */
+	public boolean contains(String messageId) {
+		return messageId != null && nodes.containsKey(messageId);
+	}
+
+	/**
+	 * @return true if the message is in the tree and not a reply of a
+	 * collapsed thread that was not attached yet
+	 */
+	public boolean isAttached(String messageId) {
+		return contains(messageId) && !lazyThreads.containsKey(messageId);
+	}
+
+	public TreeItem<Message> getNode(String messageId) {
+		if (messageId == null) {
+			return null;
+		}
+
+		final TreeItem<Message> node = nodes.get(messageId);
+		final LazyThreadItem thread = lazyThreads.get(messageId);
+		if (thread != null) {
+			// attach replies so the node has a valid parent
+			thread.load();
+		}
+
+		return node;
+	}
+
+	public void addNode(TreeItem<Message> node) {
+		final String messageId = node.getValue().getMessageId();
+		if (messageId != null) {
+			nodes.put(messageId, node);
+		}
+	}
+
+	public void removeNode(TreeItem<Message> node) {
+		final Message message = node.getValue();
+		final String messageId = message.getMessageId();
+		if (messageId != null && nodes.get(messageId) == node) {
+			nodes.remove(messageId);
+			lazyThreads.remove(messageId);
+		}
+
+		removeOrphan(node);
+	}
+
+	/**
+	 * Registers a top level node whose parent is missing.
+	 * @param node node with a parent message ID that is not in the tree
+	 */
+	public void addOrphan(TreeItem<Message> node) {
+		final String parentId = node.getValue().getParentMessageId();
+		if (parentId != null) {
+			orphans.computeIfAbsent(parentId, k -> new ArrayList<>(1))
+				.add(node);
+		}
+	}
+
+	/**
+	 * Replaces a node, e.g., by a node of a different type.
+	 * The new node must hold the same message.
+	 */
+	public void replaceNode(TreeItem<Message> oldNode,
+			TreeItem<Message> newNode) {
+
+		final String messageId = newNode.getValue().getMessageId();
+		if (messageId != null && nodes.get(messageId) == oldNode) {
+			nodes.put(messageId, newNode);
+		}
+
+		final String parentId = newNode.getValue().getParentMessageId();
+		final List<TreeItem<Message>> siblings = orphans.get(parentId);
+		if (siblings != null) {
+			final int pos = siblings.indexOf(oldNode);
+			if (pos != -1) {
+				siblings.set(pos, newNode);
+			}
+		}
+	}
+
+	/**
+	 * Registers the replies of a collapsed thread that are not attached to
+	 * the thread yet.
+	 */
+	public void addLazyThread(LazyThreadItem thread,
+			List<TreeItem<Message>> replies) {
+
+		forEachMessageId(replies, id -> lazyThreads.put(id, thread));
+	}
+
+	public void removeLazyThread(List<TreeItem<Message>> replies) {
+		forEachMessageId(replies, lazyThreads::remove);
+	}
+
+	private static void forEachMessageId(List<TreeItem<Message>> items,
+			Consumer<String> action) {
+
+		final Deque<TreeItem<Message>> stack = new ArrayDeque<>(items);
+		while (!stack.isEmpty()) {
+			final TreeItem<Message> item = stack.pop();
+			final String messageId = item.getValue().getMessageId();
+			if (messageId != null) {
+				action.accept(messageId);
+			}
+			stack.addAll(item.getChildren());
+		}
+	}
+
+	public void removeOrphan(TreeItem<Message> node) {
+		final String parentId = node.getValue().getParentMessageId();
+		if (parentId == null) {
+			return;
+		}
+
+		List<TreeItem<Message>> siblings = orphans.get(parentId);
+		if (siblings != null) {
+			siblings.remove(node);
+			if (siblings.isEmpty()) {
+				orphans.remove(parentId);
+			}
+		}
+	}
+
+	/**
+	 * Removes and returns all orphans waiting for the specified parent.
+	 * @param parentId message ID of the parent
+	 * @return list of orphans (may be empty)
+	 */
+	public List<TreeItem<Message>> removeOrphans(String parentId) {
+		if (parentId == null) {
+			return Collections.emptyList();
+		}
+
+		List<TreeItem<Message>> children = orphans.remove(parentId);
+		if (children == null) {
+			return Collections.emptyList();
+		}
+
+		return children;
+	}
+}
@@ -0,0 +1,223 @@
+package jfms.ui;
+
+import java.util.Arrays;
+
+/**
+ * Finds emoticons and Freenet keys (CHK@, SSK@, USK@) in message text.
+ * Emoticons are looked up in a precompiled trie that yields the emoticon
+ * index directly; keys are validated by a hand-written scanner. Both
+ * avoid regular expressions, so scanning a body is a single linear pass.
+ */
+class TokenScanner {
+	public static final int NONE = 0;
+	public static final int EMOTICON = 1;
+	public static final int KEY = 2;
+
+	private static final int KEY_PART_LENGTH = 43;
+	private static final int KEY_EXTRA_LENGTH = 7;
+	private static final String KEY_PATH_CHARS = "-#._~%!$&'()*+,;=:@";
+	private static final boolean[] keyChars = new boolean[128];
+	private static final boolean[] pathChars = new boolean[128];
+
+	private static final TrieNode emoticonTrie = new TrieNode();
+
+	private int type = NONE;
+	private int index = -1;
+	private int end;
+
+	private static class TrieNode {
+		private char[] chars = new char[0];
+		private TrieNode[] children = new TrieNode[0];
+		private int value = -1;
+
+		public TrieNode get(char c) {
+			for (int i=0; i<chars.length; i++) {
+				if (chars[i] == c) {
+					return children[i];
+				}
+			}
+
+			return null;
+		}
+
+		public TrieNode getOrAdd(char c) {
+			TrieNode child = get(c);
+			if (child == null) {
+				child = new TrieNode();
+				chars = Arrays.copyOf(chars, chars.length + 1);
+				children = Arrays.copyOf(children, children.length + 1);
+				chars[chars.length - 1] = c;
+				children[children.length - 1] = child;
+			}
+
+			return child;
+		}
+	}
+
+	static {
+		final String[] patterns = Emoticons.getPatterns();
+		for (int i=0; i<patterns.length; i++) {
+			TrieNode node = emoticonTrie;
+			for (int j=0; j<patterns[i].length(); j++) {
+				node = node.getOrAdd(patterns[i].charAt(j));
+			}
+			if (node.value == -1) {
+				node.value = i;
+			}
+		}
+
+		for (char c = '0'; c <= '9'; c++) {
+			keyChars[c] = true;
+		}
+		for (char c = 'a'; c <= 'z'; c++) {
+			keyChars[c] = true;
+			keyChars[Character.toUpperCase(c)] = true;
+		}
+		keyChars['~'] = true;
+		keyChars['-'] = true;
+
+		System.arraycopy(keyChars, 0, pathChars, 0, keyChars.length);
+		for (int i=0; i<KEY_PATH_CHARS.length(); i++) {
+			pathChars[KEY_PATH_CHARS.charAt(i)] = true;
+		}
+	}
+
+	private static boolean isKeyChar(char c) {
+		return c < 128 && keyChars[c];
+	}
+
+	private static boolean isPathChar(char c) {
+		return c < 128 && pathChars[c];
+	}
+
+	/**
+	 * Finds the longest emoticon starting at the specified position.
+	 * @return index of the emoticon or -1 if there is none
+	 */
+	public static int matchEmoticon(String text, int pos, int limit) {
+		TrieNode node = emoticonTrie;
+		int match = -1;
+		for (int i=pos; i<limit; i++) {
+			node = node.get(text.charAt(i));
+			if (node == null) {
+				break;
+			}
+			if (node.value != -1) {
+				match = node.value;
+			}
+		}
+
+		return match;
+	}
+
+	/**
+	 * Checks if a Freenet key starts at the specified position.
+	 * @return end of the key (including path) or -1 if there is none
+	 */
+	public static int matchKey(String text, int pos, int limit) {
+		if (pos + 4 > limit || text.charAt(pos + 3) != '@' ||
+				!(text.startsWith("CHK", pos) || text.startsWith("SSK", pos) ||
+				  text.startsWith("USK", pos))) {
+			return -1;
+		}
+
+		int i = pos + 4;
+		i = skipKeyChars(text, i, limit, KEY_PART_LENGTH);
+		if (i == -1 || i >= limit || text.charAt(i++) != ',') {
+			return -1;
+		}
+		i = skipKeyChars(text, i, limit, KEY_PART_LENGTH);
+		if (i == -1 || i >= limit || text.charAt(i++) != ',') {
+			return -1;
+		}
+		i = skipKeyChars(text, i, limit, KEY_EXTRA_LENGTH);
+		if (i == -1) {
+			return -1;
+		}
+
+		while (i < limit && text.charAt(i) == '/') {
+			i++;
+			while (i < limit && isPathChar(text.charAt(i))) {
+				i++;
+			}
+		}
+
+		return i;
+	}
+
+	private static int skipKeyChars(String text, int pos, int limit,
+			int count) {
+		if (pos + count > limit) {
+			return -1;
+		}
+		for (int i=pos; i<pos+count; i++) {
+			if (!isKeyChar(text.charAt(i))) {
+				return -1;
+			}
+		}
+
+		return pos + count;
+	}
+
+	/**
+	 * Checks for an emoticon or a key at the specified position.
+	 * On success, the token can be queried with {@link #getType},
+	 * {@link #getIndex} and {@link #getEnd}.
+	 * @param text text to scan
+	 * @param pos start position
+	 * @param limit end of the region to scan (exclusive)
+	 * @param emoticons whether emoticons should be matched
+	 * @param keys whether keys should be matched
+	 * @return type of the token found or NONE
+	 */
+	public int scan(String text, int pos, int limit, boolean emoticons,
+			boolean keys) {
+		type = NONE;
+		index = -1;
+		end = pos;
+
+		switch (text.charAt(pos)) {
+		case 'C':
+		case 'S':
+		case 'U':
+			if (keys) {
+				final int keyEnd = matchKey(text, pos, limit);
+				if (keyEnd != -1) {
+					type = KEY;
+					end = keyEnd;
+				}
+			}
+			break;
+		default:
+			if (emoticons) {
+				final int emoticon = matchEmoticon(text, pos, limit);
+				if (emoticon != -1) {
+					type = EMOTICON;
+					index = emoticon;
+					end = pos + Emoticons.getLength(emoticon);
+				}
+			}
+			break;
+		}
+
+		return type;
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	/**
+	 * @return index of the emoticon found by the last scan
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return end of the token found by the last scan (exclusive)
+	 */
+	public int getEnd() {
+		return end;
+	}
+}
@@ -128,9 +128,13 @@ public class TrustListWindow {
 		Store store = FmsManager.getInstance().getStore();
 		List<Trust> storeTrustList;
 		if (mode == Mode.TRUST_LIST) {
-			storeTrustList = store.getNumericTrustList(identityId);
+			storeTrustList = QueryStats.getInstance().time(
+					"getNumericTrustList",
+					() -> store.getNumericTrustList(identityId));
 		} else {
-			storeTrustList = store.getNumericTrusteeList(identityId);
+			storeTrustList = QueryStats.getInstance().time(
+					"getNumericTrusteeList",
+					() -> store.getNumericTrusteeList(identityId));
 		}
 
 		IdentityManager identityManager = FmsManager.getInstance().getIdentityManager();
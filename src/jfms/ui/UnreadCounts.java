@@ -0,0 +1,167 @@
+package jfms.ui;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javafx.application.Platform;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Unread message counts of the subscribed boards.
+ * Counts are kept by board ID, the methods take board names as used by
+ * the messages and the folder tree and resolve them through the
+ * {@link jfms.fms.BoardManager}. Boards without ID are not subscribed.
+ * Counts are updated immediately; the board items in the folder tree are
+ * updated once per pulse, no matter how many deltas were applied.
+ * All methods must be called from the FX application thread.
+ */
+class UnreadCounts {
+	private static final Logger LOG = Logger.getLogger(UnreadCounts.class.getName());
+
+	private final Function<String, Integer> boardIds;
+	private final Map<Integer, TreeItem<Board>> boardItems = new HashMap<>();
+	private final Map<Integer, Integer> counts = new HashMap<>();
+	private final Set<Integer> changedBoards = new HashSet<>();
+	// number of changes per board, used to detect concurrent changes
+	private final Map<Integer, Integer> modifications = new HashMap<>();
+	private boolean updateScheduled;
+
+	/**
+	 * @param boardIds returns the ID of a board or null if the board is
+	 * unknown
+	 */
+	public UnreadCounts(Function<String, Integer> boardIds) {
+		this.boardIds = boardIds;
+	}
+
+	/**
+	 * Registers the folder tree item of a board.
+	 * The current value of the item is used as initial count.
+	 */
+	public void addBoard(TreeItem<Board> boardItem) {
+		final Board board = boardItem.getValue();
+		final Integer boardId = boardIds.apply(board.getName());
+		if (boardId == null) {
+			LOG.log(Level.WARNING, "board {0} has no ID", board.getName());
+			return;
+		}
+
+		boardItems.put(boardId, boardItem);
+		counts.put(boardId, board.getUnreadMessageCount());
+	}
+
+	public void removeBoard(String boardName) {
+		final Integer boardId = boardIds.apply(boardName);
+		if (boardId == null) {
+			return;
+		}
+
+		boardItems.remove(boardId);
+		counts.remove(boardId);
+		changedBoards.remove(boardId);
+		modifications.remove(boardId);
+	}
+
+	public boolean contains(String boardName) {
+		return getBoardItem(boardName) != null;
+	}
+
+	public TreeItem<Board> getBoardItem(String boardName) {
+		final Integer boardId = boardIds.apply(boardName);
+		return boardId != null ? boardItems.get(boardId) : null;
+	}
+
+	public Set<String> getBoardNames() {
+		final Set<String> names = new HashSet<>();
+		for (TreeItem<Board> boardItem : boardItems.values()) {
+			names.add(boardItem.getValue().getName());
+		}
+
+		return names;
+	}
+
+	/**
+	 * @return number of unread messages or 0 if the board is not subscribed
+	 */
+	public int getCount(String boardName) {
+		final Integer boardId = boardIds.apply(boardName);
+		return boardId != null ? counts.getOrDefault(boardId, 0) : 0;
+	}
+
+	/**
+	 * @return number of times the count of the board was changed
+	 */
+	public int getModificationCount(String boardName) {
+		final Integer boardId = boardIds.apply(boardName);
+		return boardId != null ? modifications.getOrDefault(boardId, 0) : 0;
+	}
+
+	public void add(String boardName, int delta) {
+		if (delta == 0) {
+			return;
+		}
+
+		final Integer boardId = boardIds.apply(boardName);
+		final Integer count = boardId != null ? counts.get(boardId) : null;
+		if (count == null) {
+			// cross-posted board not subscribed, skip
+			return;
+		}
+
+		int newCount = count + delta;
+		if (newCount < 0) {
+			LOG.log(Level.WARNING, "tried to set read count < 0");
+			newCount = 0;
+		}
+
+		setCount(boardId, newCount);
+	}
+
+	public void add(Map<String, Integer> deltas) {
+		for (Map.Entry<String, Integer> e : deltas.entrySet()) {
+			add(e.getKey(), e.getValue());
+		}
+	}
+
+	public void set(String boardName, int count) {
+		final Integer boardId = boardIds.apply(boardName);
+		if (boardId != null && counts.containsKey(boardId)) {
+			setCount(boardId, count);
+		}
+	}
+
+	public void clearAll() {
+		for (Integer boardId : boardItems.keySet()) {
+			setCount(boardId, 0);
+		}
+	}
+
+	private void setCount(Integer boardId, int count) {
+		counts.put(boardId, count);
+		changedBoards.add(boardId);
+		modifications.merge(boardId, 1, Integer::sum);
+
+		if (!updateScheduled) {
+			updateScheduled = true;
+			Platform.runLater(this::updateBoardItems);
+		}
+	}
+
+	private void updateBoardItems() {
+		updateScheduled = false;
+
+		for (Integer boardId : changedBoards) {
+			final TreeItem<Board> boardItem = boardItems.get(boardId);
+			final Board board = boardItem.getValue();
+			final int count = counts.get(boardId);
+			if (board.getUnreadMessageCount() != count) {
+				boardItem.setValue(new Board(board.getName(), count));
+			}
+		}
+		changedBoards.clear();
+	}
+}
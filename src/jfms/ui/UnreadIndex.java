@@ -0,0 +1,326 @@
+package jfms.ui;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import javafx.event.EventHandler;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Positions of unread messages in the message tree.
+ * Unread messages and the number of unread messages per thread are
+ * updated incrementally from tree modification events and read state
+ * changes. Finding the next or previous unread message only searches the
+ * current thread and skips threads without unread messages using a
+ * bitset, so it does not require stepping through the rows of the table.
+ * The positions of the threads are renumbered lazily after top level
+ * nodes were added, removed or sorted. Replies of collapsed threads that
+ * are not attached yet are skipped; such threads only contain read
+ * messages.
+ */
+class UnreadIndex {
+	// attached items by message
+	private final Map<Message, TreeItem<Message>> items =
+		new IdentityHashMap<>();
+	private final Set<TreeItem<Message>> unreadItems =
+		Collections.newSetFromMap(new IdentityHashMap<>());
+	// number of unread messages of top level nodes (including the node)
+	private final Map<TreeItem<Message>, Integer> threadUnread =
+		new IdentityHashMap<>();
+
+	private final List<TreeItem<Message>> threads = new ArrayList<>();
+	private final Map<TreeItem<Message>, Integer> threadPositions =
+		new IdentityHashMap<>();
+	private final BitSet unreadThreads = new BitSet();
+	private boolean threadsValid;
+
+	private final EventHandler<TreeItem.TreeModificationEvent<Message>>
+		modificationHandler = this::handleModification;
+
+	private TreeItem<Message> root;
+
+	public void setRoot(TreeItem<Message> newRoot) {
+		if (root != null) {
+			root.removeEventHandler(TreeItem.childrenModificationEvent(),
+					modificationHandler);
+		}
+
+		root = newRoot;
+		items.clear();
+		unreadItems.clear();
+		threadUnread.clear();
+		threadsValid = false;
+
+		if (root != null) {
+			root.addEventHandler(TreeItem.childrenModificationEvent(),
+					modificationHandler);
+			for (TreeItem<Message> thread : root.getChildren()) {
+				addSubtree(thread, thread);
+			}
+		}
+	}
+
+	public void setUnread(Message message, boolean isUnread) {
+		final TreeItem<Message> item = items.get(message);
+		if (item == null) {
+			return;
+		}
+
+		final boolean changed = isUnread ?
+			unreadItems.add(item) : unreadItems.remove(item);
+		if (changed) {
+			addUnread(getThread(item), isUnread ? 1 : -1);
+		}
+	}
+
+	public boolean hasUnread() {
+		return !unreadItems.isEmpty();
+	}
+
+	/**
+	 * Finds the first unread message after the specified item.
+	 * @param item start item, null to search from the beginning
+	 * @return item of unread message or null if there is none
+	 */
+	public TreeItem<Message> next(TreeItem<Message> item) {
+		if (unreadItems.isEmpty()) {
+			return null;
+		}
+		updateThreads();
+
+		int pos = 0;
+		final TreeItem<Message> thread = item != null ? getThread(item) : null;
+		if (thread != null) {
+			final TreeItem<Message> next = findInThread(thread, item, true);
+			if (next != null) {
+				return next;
+			}
+			pos = threadPositions.get(thread) + 1;
+		}
+
+		final int nextPos = unreadThreads.nextSetBit(pos);
+		if (nextPos < 0) {
+			return null;
+		}
+
+		return findInThread(threads.get(nextPos), null, true);
+	}
+
+	/**
+	 * Finds the last unread message before the specified item.
+	 * @param item start item, null to search from the end
+	 * @return item of unread message or null if there is none
+	 */
+	public TreeItem<Message> previous(TreeItem<Message> item) {
+		if (unreadItems.isEmpty()) {
+			return null;
+		}
+		updateThreads();
+
+		int pos = threads.size() - 1;
+		final TreeItem<Message> thread = item != null ? getThread(item) : null;
+		if (thread != null) {
+			final TreeItem<Message> previous =
+				findInThread(thread, item, false);
+			if (previous != null) {
+				return previous;
+			}
+			pos = threadPositions.get(thread) - 1;
+		}
+		if (pos < 0) {
+			return null;
+		}
+
+		final int previousPos = unreadThreads.previousSetBit(pos);
+		if (previousPos < 0) {
+			return null;
+		}
+
+		return findInThread(threads.get(previousPos), null, false);
+	}
+
+	private void handleModification(
+			TreeItem.TreeModificationEvent<Message> e) {
+
+		final TreeItem<Message> parent = e.getTreeItem();
+		if (parent == root) {
+			if (e.wasAdded() || e.wasRemoved() || e.wasPermutated()) {
+				threadsValid = false;
+			}
+			for (TreeItem<Message> thread : e.getRemovedChildren()) {
+				removeSubtree(thread, thread);
+				threadUnread.remove(thread);
+			}
+			for (TreeItem<Message> thread : e.getAddedChildren()) {
+				addSubtree(thread, thread);
+			}
+			return;
+		}
+
+		final TreeItem<Message> thread = getThread(parent);
+		if (thread == null) {
+			return;
+		}
+		for (TreeItem<Message> child : e.getRemovedChildren()) {
+			removeSubtree(child, thread);
+		}
+		for (TreeItem<Message> child : e.getAddedChildren()) {
+			addSubtree(child, thread);
+		}
+	}
+
+	private void addSubtree(TreeItem<Message> subtree,
+			TreeItem<Message> thread) {
+
+		final int[] count = new int[1];
+		forEachItem(subtree, item -> {
+			items.put(item.getValue(), item);
+			if (item.getValue().getIsNew() && unreadItems.add(item)) {
+				count[0]++;
+			}
+		});
+		addUnread(thread, count[0]);
+	}
+
+	private void removeSubtree(TreeItem<Message> subtree,
+			TreeItem<Message> thread) {
+
+		final int[] count = new int[1];
+		forEachItem(subtree, item -> {
+			if (items.get(item.getValue()) == item) {
+				items.remove(item.getValue());
+			}
+			if (unreadItems.remove(item)) {
+				count[0]++;
+			}
+		});
+		addUnread(thread, -count[0]);
+	}
+
+	private void addUnread(TreeItem<Message> thread, int delta) {
+		if (thread == null || delta == 0) {
+			return;
+		}
+
+		final int count = threadUnread.getOrDefault(thread, 0) + delta;
+		if (count > 0) {
+			threadUnread.put(thread, count);
+		} else {
+			threadUnread.remove(thread);
+		}
+
+		if (threadsValid) {
+			final Integer pos = threadPositions.get(thread);
+			if (pos != null) {
+				unreadThreads.set(pos, count > 0);
+			}
+		}
+	}
+
+	/**
+	 * @return top level node containing the item or null if the item is
+	 * not part of the tree
+	 */
+	private TreeItem<Message> getThread(TreeItem<Message> item) {
+		TreeItem<Message> thread = item;
+		while (thread != null && thread.getParent() != root) {
+			thread = thread.getParent();
+		}
+
+		return thread;
+	}
+
+	private void updateThreads() {
+		if (threadsValid) {
+			return;
+		}
+
+		threads.clear();
+		threadPositions.clear();
+		unreadThreads.clear();
+		if (root != null) {
+			for (TreeItem<Message> thread : root.getChildren()) {
+				final int pos = threads.size();
+				threads.add(thread);
+				threadPositions.put(thread, pos);
+				if (threadUnread.containsKey(thread)) {
+					unreadThreads.set(pos);
+				}
+			}
+		}
+
+		threadsValid = true;
+	}
+
+	/**
+	 * Searches a thread in tree order.
+	 * @param start item to start after (or before), null to search the
+	 * whole thread
+	 * @param forward whether to return the first unread message after the
+	 * start item or the last one before it
+	 */
+	private TreeItem<Message> findInThread(TreeItem<Message> thread,
+			TreeItem<Message> start, boolean forward) {
+
+		if (!threadUnread.containsKey(thread)) {
+			return null;
+		}
+
+		final List<TreeItem<Message>> order = new ArrayList<>();
+		forEachItem(thread, order::add);
+
+		int pos = forward ? 0 : order.size() - 1;
+		if (start != null) {
+			final int startPos = order.indexOf(start);
+			if (startPos >= 0) {
+				pos = forward ? startPos + 1 : startPos - 1;
+			}
+		}
+
+		final int step = forward ? 1 : -1;
+		for (int i=pos; i>=0 && i<order.size(); i+=step) {
+			if (unreadItems.contains(order.get(i))) {
+				return order.get(i);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Pre-order traversal, same order as the rows of the table.
+	 */
+	private static void forEachItem(TreeItem<Message> subtree,
+			Consumer<TreeItem<Message>> action) {
+
+		final Deque<TreeItem<Message>> stack = new ArrayDeque<>();
+		stack.push(subtree);
+		while (!stack.isEmpty()) {
+			final TreeItem<Message> item = stack.pop();
+			action.accept(item);
+			pushChildren(stack, item);
+		}
+	}
+
+	private static void pushChildren(Deque<TreeItem<Message>> stack,
+			TreeItem<Message> item) {
+
+		if (item instanceof LazyThreadItem &&
+				!((LazyThreadItem)item).isLoaded()) {
+			// replies of collapsed threads are all read
+			return;
+		}
+
+		final List<TreeItem<Message>> children = item.getChildren();
+		for (int i=children.size()-1; i>=0; i--) {
+			stack.push(children.get(i));
+		}
+	}
+}
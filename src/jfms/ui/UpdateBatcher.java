@@ -0,0 +1,47 @@
+package jfms.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+
+/**
+ * Collects items from arbitrary threads and hands them over to the FX
+ * application thread in batches.
+ * At most one runLater call is pending at a time, so items arriving in
+ * quick succession are processed together in the next pulse.
+ */
+class UpdateBatcher<T> {
+	private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	private final Consumer<List<T>> consumer;
+
+	public UpdateBatcher(Consumer<List<T>> consumer) {
+		this.consumer = consumer;
+	}
+
+	public void add(T item) {
+		queue.add(item);
+		if (scheduled.compareAndSet(false, true)) {
+			Platform.runLater(this::flush);
+		}
+	}
+
+	private void flush() {
+		// reset first: items added while processing trigger a new batch
+		scheduled.set(false);
+
+		List<T> batch = new ArrayList<>();
+		T item;
+		while ((item = queue.poll()) != null) {
+			batch.add(item);
+		}
+
+		if (!batch.isEmpty()) {
+			consumer.accept(batch);
+		}
+	}
+}
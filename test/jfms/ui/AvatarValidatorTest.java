@@ -0,0 +1,81 @@
+package jfms.ui;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AvatarValidatorTest {
+	private static byte[] createPng(int width, int height) {
+		byte[] data = new byte[33];
+		final byte[] header = {
+			(byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n',
+			0, 0, 0, 13, 'I', 'H', 'D', 'R'
+		};
+		System.arraycopy(header, 0, data, 0, header.length);
+		for (int i=0; i<4; i++) {
+			data[16 + i] = (byte)(width >>> (24 - 8*i));
+			data[20 + i] = (byte)(height >>> (24 - 8*i));
+		}
+
+		return data;
+	}
+
+	@Test
+	public void testPng() {
+		Assert.assertArrayEquals(new int[]{75, 60},
+				AvatarValidator.getDimensions(createPng(75, 60)));
+		Assert.assertTrue(AvatarValidator.isValid(createPng(75, 60)));
+		Assert.assertFalse(AvatarValidator.isValid(createPng(75, 100000)));
+		Assert.assertFalse(AvatarValidator.isValid(createPng(0, 10)));
+	}
+
+	@Test
+	public void testGif() {
+		byte[] data = {'G', 'I', 'F', '8', '9', 'a', 32, 0, 0x10, 0x01};
+		Assert.assertArrayEquals(new int[]{32, 272},
+				AvatarValidator.getDimensions(data));
+	}
+
+	@Test
+	public void testJpeg() {
+		byte[] data = {
+			(byte)0xff, (byte)0xd8,
+			// APP0 segment with 2 bytes of payload
+			(byte)0xff, (byte)0xe0, 0, 4, 0, 0,
+			// SOF0: length, precision, height, width
+			(byte)0xff, (byte)0xc0, 0, 17, 8, 0, 50, 0, 100
+		};
+		Assert.assertArrayEquals(new int[]{100, 50},
+				AvatarValidator.getDimensions(data));
+	}
+
+	@Test
+	public void testBmp() {
+		byte[] data = new byte[54];
+		data[0] = 'B';
+		data[1] = 'M';
+		// BITMAPINFOHEADER, width 64, height -48 (top-down)
+		data[14] = 40;
+		data[18] = 64;
+		data[22] = (byte)0xd0;
+		data[23] = (byte)0xff;
+		data[24] = (byte)0xff;
+		data[25] = (byte)0xff;
+		Assert.assertArrayEquals(new int[]{64, 48},
+				AvatarValidator.getDimensions(data));
+		Assert.assertTrue(AvatarValidator.isValid(data));
+
+		// BITMAPCOREHEADER
+		byte[] core = {'B', 'M', 0, 0, 0, 0, 0, 0, 0, 0, 26, 0, 0, 0,
+			12, 0, 0, 0, 32, 0, 0x10, 0x01};
+		Assert.assertArrayEquals(new int[]{32, 272},
+				AvatarValidator.getDimensions(core));
+	}
+
+	@Test
+	public void testInvalid() {
+		Assert.assertNull(AvatarValidator.getDimensions(new byte[]{1, 2, 3}));
+		Assert.assertFalse(AvatarValidator.isValid(new byte[0]));
+		Assert.assertFalse(AvatarValidator.isValid(
+				new byte[AvatarValidator.MAX_BYTES + 1]));
+	}
+}
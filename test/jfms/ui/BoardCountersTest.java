@@ -0,0 +1,162 @@
+package jfms.ui;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BoardCountersTest {
+	private final Map<String, Integer> stored = new HashMap<>();
+	private final TestLoader loader = new TestLoader();
+	private int queries;
+	private BoardCounters counters;
+	private Map<String, Integer> counts;
+
+	/**
+	 * Runs the query when {@link #finish} is called.
+	 */
+	private static class TestLoader extends FolderLoader {
+		private Callable<Map<String, Integer>> task;
+		private Consumer<Map<String, Integer>> callback;
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> void load(Callable<T> task, Consumer<T> callback) {
+			this.task = (Callable<Map<String, Integer>>)task;
+			this.callback = (Consumer<Map<String, Integer>>)callback;
+		}
+
+		@Override
+		public void cancel() {
+			task = null;
+			callback = null;
+		}
+
+		public boolean isPending() {
+			return task != null;
+		}
+
+		public void finish() throws Exception {
+			final Consumer<Map<String, Integer>> c = callback;
+			final Map<String, Integer> result = task.call();
+			cancel();
+			c.accept(result);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		stored.put("test", 5);
+		counters = new BoardCounters(() -> {
+			queries++;
+			return new HashMap<>(stored);
+		}, loader);
+	}
+
+	@Test
+	public void testAdd() throws Exception {
+		load();
+		Assert.assertEquals(Integer.valueOf(5), counts.get("test"));
+
+		Map<String, Integer> deltas = new HashMap<>();
+		deltas.put("test", 2);
+		deltas.put("new", 1);
+		counters.add(deltas);
+		load();
+		Assert.assertEquals(Integer.valueOf(7), counts.get("test"));
+		Assert.assertEquals(Integer.valueOf(1), counts.get("new"));
+		Assert.assertEquals(1, queries);
+
+		counters.rebuild();
+		load();
+		Assert.assertEquals(Integer.valueOf(5), counts.get("test"));
+		Assert.assertNull(counts.get("new"));
+		Assert.assertEquals(2, queries);
+	}
+
+	@Test
+	public void testAddBeforeLoad() throws Exception {
+		// already stored, included in the query
+		stored.put("test", 6);
+		counters.add(delta("test", 1));
+		Assert.assertEquals(0, queries);
+
+		counters.getCounts(c -> counts = c);
+		Assert.assertNull(counts);
+
+		// received while the query is running
+		counters.add(delta("test", 2));
+		counters.add(delta("other", 1));
+		loader.finish();
+		Assert.assertEquals(Integer.valueOf(8), counts.get("test"));
+		Assert.assertEquals(Integer.valueOf(1), counts.get("other"));
+		Assert.assertEquals(1, queries);
+	}
+
+	@Test
+	public void testDeleteBelowZero() throws Exception {
+		load();
+
+		counters.add(delta("test", -6));
+		counters.add(delta("unknown", -1));
+		load();
+		Assert.assertEquals(Integer.valueOf(0), counts.get("test"));
+		Assert.assertEquals(Integer.valueOf(0), counts.get("unknown"));
+
+		counters.add(delta("test", 1));
+		load();
+		Assert.assertEquals(Integer.valueOf(1), counts.get("test"));
+	}
+
+	@Test
+	public void testAddBoard() throws Exception {
+		load();
+
+		counters.addBoard("new");
+		load();
+		Assert.assertEquals(Integer.valueOf(0), counts.get("new"));
+
+		// existing board is unchanged
+		counters.addBoard("test");
+		load();
+		Assert.assertEquals(Integer.valueOf(5), counts.get("test"));
+
+		// created while loading
+		counters.rebuild();
+		counters.getCounts(c -> counts = c);
+		counters.addBoard("created");
+		loader.finish();
+		Assert.assertEquals(Integer.valueOf(0), counts.get("created"));
+	}
+
+	@Test
+	public void testRebuildWhileLoading() throws Exception {
+		counters.getCounts(c -> counts = c);
+		counters.add(delta("test", 1));
+		counters.rebuild();
+		Assert.assertTrue(loader.isPending());
+
+		stored.put("test", 6);
+		loader.finish();
+		Assert.assertEquals(Integer.valueOf(6), counts.get("test"));
+	}
+
+	private void load() throws Exception {
+		counts = null;
+		counters.getCounts(c -> counts = c);
+		if (counts == null) {
+			loader.finish();
+		}
+		Assert.assertNotNull(counts);
+	}
+
+	private static Map<String, Integer> delta(String board, int delta) {
+		Map<String, Integer> deltas = new HashMap<>();
+		deltas.put(board, delta);
+		return deltas;
+	}
+}
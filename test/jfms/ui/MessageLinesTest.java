@@ -0,0 +1,93 @@
+package jfms.ui;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageLinesTest {
+	@Test
+	public void testLines() {
+		MessageLines lines = new MessageLines("a\r\nb\n\rc\n", null,
+				false, false);
+
+		Assert.assertEquals(Arrays.asList("a", "b", "", "c"), lines);
+		Assert.assertEquals(MessageLines.TEXT, lines.getType(0));
+	}
+
+	@Test
+	public void testQuotes() {
+		final String body = "a\n> b\n> c\nd";
+
+		MessageLines lines = new MessageLines(body, null, false, false);
+		Assert.assertEquals(Arrays.asList("a", "> b", "> c", "d"), lines);
+		Assert.assertEquals(MessageLines.QUOTE, lines.getType(1));
+
+		lines = new MessageLines(body, null, true, false);
+		Assert.assertEquals(Arrays.asList("a", "> [quoted text muted]", "d"),
+				lines);
+		Assert.assertEquals(MessageLines.MUTED, lines.getType(1));
+		Assert.assertEquals(MessageLines.TEXT, lines.getType(2));
+	}
+
+	@Test
+	public void testSignature() {
+		MessageLines lines = new MessageLines("a", "s1\ns2", false, false);
+		Assert.assertEquals(Arrays.asList("a"), lines);
+
+		lines = new MessageLines("a", "s1\ns2", false, true);
+		Assert.assertEquals(Arrays.asList("a", "", "-- ", "s1", "s2"), lines);
+		Assert.assertEquals(MessageLines.SIGNATURE, lines.getType(4));
+	}
+
+	@Test
+	public void testLongLines() {
+		final int max = MessageLines.MAX_LINE_LENGTH;
+		final StringBuilder longLine = new StringBuilder();
+		while (longLine.length() < 2 * max + 10) {
+			longLine.append('x');
+		}
+		final String body = "a\n> " + longLine + "\nb";
+
+		MessageLines lines = new MessageLines(body, null, false, false);
+		Assert.assertEquals(5, lines.size());
+		Assert.assertEquals(max, lines.get(1).length());
+		Assert.assertEquals(12, lines.get(3).length());
+		Assert.assertEquals(MessageLines.QUOTE, lines.getType(2));
+		Assert.assertFalse(lines.isContinuation(1));
+		Assert.assertTrue(lines.isContinuation(2));
+		Assert.assertFalse(lines.isContinuation(4));
+
+		Assert.assertEquals(body,
+				lines.getText(Arrays.asList(0, 1, 2, 3, 4)));
+		Assert.assertEquals("a\nb", lines.getText(Arrays.asList(0, 4)));
+	}
+
+	@Test
+	public void testHighlights() {
+		final int max = MessageLines.MAX_LINE_LENGTH;
+		StringBuilder body = new StringBuilder("nothing\n> Quoted MATCH\n");
+		// match spanning the split of a long line
+		for (int i=0; i<max-2; i++) {
+			body.append('x');
+		}
+		body.append("match\nmatch");
+
+		MessageLines lines = new MessageLines(body.toString(), "match",
+				false, true);
+		BitSet matches = lines.findHighlights("match");
+		Assert.assertFalse(matches.get(0));
+		Assert.assertTrue(matches.get(1));
+		Assert.assertTrue(matches.get(2));
+		Assert.assertTrue(matches.get(3));
+		Assert.assertTrue(matches.get(4));
+		// signature is not searched
+		Assert.assertEquals(4, matches.cardinality());
+
+		Assert.assertTrue(lines.findHighlights(null).isEmpty());
+
+		lines = new MessageLines(body.toString(), null, true, false);
+		Assert.assertFalse(lines.findHighlights("quoted").get(1));
+	}
+}
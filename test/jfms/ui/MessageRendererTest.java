@@ -0,0 +1,131 @@
+package jfms.ui;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageRendererTest {
+	private static final String KEY =
+		"CHK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQ," +
+		"abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQ,AAMC--8/file.txt";
+
+	private static String renderBody(MessageRenderer renderer, String body) {
+		final String html = renderer.render(body, null);
+		final int start = html.indexOf("<body>\n") + 7;
+		final int end = html.lastIndexOf("\n</body>");
+
+		return html.substring(start, end);
+	}
+
+	@Test
+	public void testEscaping() {
+		MessageRenderer renderer = new MessageRenderer(true);
+
+		Assert.assertEquals("a &#60;b&#62; &#38; &#34;c&#34; &#228;",
+				renderBody(renderer, "a <b> & \"c\" \u00e4"));
+	}
+
+	@Test
+	public void testLines() {
+		MessageRenderer renderer = new MessageRenderer(true);
+
+		Assert.assertEquals("a\n<br/>b\n<br/>\n<br/>c",
+				renderBody(renderer, "a\r\nb\n\rc\n"));
+
+		renderer.setUseMonospaceFont(true);
+		Assert.assertEquals("<pre>a\nb</pre>", renderBody(renderer, "a\nb"));
+	}
+
+	@Test
+	public void testQuotes() {
+		MessageRenderer renderer = new MessageRenderer(true);
+		final String body = "a\n> b\n> c\nd";
+
+		Assert.assertEquals("a<span class=\"quote\"><span class=\"muted\">" +
+				"\n<br/>&gt; [quoted text muted]</span>" +
+				"<span class=\"quoted\">\n<br/>&#62; b\n<br/>&#62; c" +
+				"</span></span>\n<br/>d", renderBody(renderer, body));
+
+		Assert.assertTrue(MessageRenderer.getViewStyleSheet(true, true)
+				.contains(".quoted { display: none"));
+		Assert.assertTrue(MessageRenderer.getViewStyleSheet(false, true)
+				.contains(".muted { display: none"));
+	}
+
+	@Test
+	public void testSignature() {
+		MessageRenderer renderer = new MessageRenderer(true);
+
+		final String html = renderer.render("a", "s1\ns2");
+		Assert.assertTrue(html.contains("a<span class=\"signature\">" +
+				"\n<br/>\n<br/>--&nbsp;\n<br/>s1\n<br/>s2</span>"));
+
+		Assert.assertFalse(MessageRenderer.getViewStyleSheet(false, true)
+				.contains(".signature"));
+		Assert.assertTrue(MessageRenderer.getViewStyleSheet(false, false)
+				.contains(".signature { display: none"));
+	}
+
+	@Test
+	public void testLinks() {
+		MessageRenderer renderer = new MessageRenderer(true);
+		final String body = "see " + KEY + " now";
+
+		Assert.assertEquals(body, renderBody(renderer, body));
+
+		renderer.setDetectLinks(true);
+		Assert.assertEquals("see <a href=\"" + KEY +
+				"\" title=\"Right-click to copy link\">" + KEY + "</a> now",
+				renderBody(renderer, body));
+
+		// key too short
+		Assert.assertEquals("CHK@abc", renderBody(renderer, "CHK@abc"));
+	}
+
+	@Test
+	public void testHighlight() {
+		MessageRenderer renderer = new MessageRenderer(true);
+		renderer.setHighlight("b&");
+
+		Assert.assertEquals("a<span class=\"highlight\">B&#38;</span>c",
+				renderBody(renderer, "aB&c"));
+
+		renderer.setDetectLinks(true);
+		renderer.setHighlight("file");
+		Assert.assertTrue(renderBody(renderer, KEY).endsWith(
+				"/<span class=\"highlight\">file</span>.txt</a>"));
+	}
+
+	@Test
+	public void testLargeBody() {
+		final int lines = 1000;
+		StringBuilder body = new StringBuilder();
+		for (int i=0; i<lines; i++) {
+			body.append("> quoted line with <html> & a highlight\n");
+			body.append("plain text line, see ").append(KEY).append('\n');
+		}
+
+		MessageRenderer renderer = new MessageRenderer(false);
+		renderer.setDetectLinks(true);
+		renderer.setHighlight("highlight");
+		final String html = renderer.render(body.toString(), null);
+
+		// only the document element
+		Assert.assertEquals(1, count(html, "<html>"));
+		Assert.assertEquals(lines, count(html, "&#60;html&#62; &#38; a "));
+		Assert.assertEquals(lines,
+				count(html, "<span class=\"highlight\">highlight</span>"));
+		Assert.assertEquals(lines, count(html, "<span class=\"quote\">"));
+		Assert.assertEquals(lines, count(html, "<a href="));
+	}
+
+	private static int count(String text, String str) {
+		int count = 0;
+		int pos = text.indexOf(str);
+		while (pos >= 0) {
+			count++;
+			pos = text.indexOf(str, pos + str.length());
+		}
+
+		return count;
+	}
+}
@@ -1,5 +1,10 @@
 package jfms.ui;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -20,4 +25,73 @@ public class MessageTest {
 		message.setFrom("12@34@SSK");
 		Assert.assertEquals("12@34", message.getFromShort());
 	}
+
+	@Test
+	public void testDate() {
+		Message message = new Message();
+		Assert.assertEquals("", message.getDate());
+
+		message.setDate(LocalDateTime.of(2017, 3, 4, 5, 6, 7));
+		Assert.assertEquals("2017-03-04 05:06:07", message.getDate());
+
+		message.setDate(LocalDate.of(2017, 3, 4));
+		Assert.assertEquals("2017-03-04", message.getDate());
+
+		message.setIndexDate(LocalDate.of(2017, 3, 5));
+		Assert.assertEquals("2017-03-05", message.getIndexDate());
+		Assert.assertEquals(LocalDate.of(2017, 3, 5),
+				message.getIndexLocalDate());
+	}
+
+	@Test
+	public void testLazyProperties() {
+		Message message = new Message();
+		message.setSubject("subject");
+		message.setFrom("name@SSK");
+		message.setDate(LocalDateTime.of(2017, 3, 4, 5, 6, 7));
+		message.setLastReplyTimestamp(message.getTimestamp());
+		Assert.assertFalse(message.hasProperties());
+
+		Assert.assertEquals("subject", message.subjectProperty().get());
+		Assert.assertTrue(message.hasProperties());
+		Assert.assertEquals("name", message.fromShortProperty().get());
+		Assert.assertEquals("2017-03-04 05:06:07",
+				message.lastReplyDateProperty().get());
+
+		// setters must update existing properties
+		message.setFrom("other@SSK");
+		Assert.assertEquals("other", message.fromShortProperty().get());
+		message.setLastReplyTimestamp(message.getTimestamp() + 60);
+		Assert.assertEquals("2017-03-04 05:07:07",
+				message.lastReplyDateProperty().get());
+	}
+
+	@Test
+	public void testNoPropertiesCreated() {
+		final List<String> boards = Arrays.asList("test", "fms");
+		List<Message> messages = new ArrayList<>();
+		for (int i=0; i<100; i++) {
+			Message m = new Message();
+			m.setStoreId(i);
+			m.setSubject("subject " + (i % 7));
+			m.setFrom("name@SSK");
+			m.setDate(LocalDateTime.of(2017, 3, 4, 5, 6, i % 60));
+			m.setIndexDate(LocalDate.of(2017, 3, 4));
+			m.setLastReplyTimestamp(m.getTimestamp());
+			m.setMessageId("message-id");
+			m.setReplyBoard("test");
+			m.setBoardList(boards);
+			messages.add(m);
+		}
+
+		// sorting (as done by the header table comparators) must use the
+		// plain fields
+		messages.sort((a, b) -> a.getSubject().compareTo(b.getSubject()));
+		messages.sort((a, b) -> Long.compare(a.getTimestamp(),
+					b.getTimestamp()));
+
+		for (Message m : messages) {
+			Assert.assertFalse(m.hasProperties());
+		}
+	}
 }
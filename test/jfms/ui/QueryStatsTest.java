@@ -0,0 +1,56 @@
+package jfms.ui;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryStatsTest {
+	@Test
+	public void testTime() {
+		QueryStats stats = new QueryStats();
+
+		List<Integer> result = stats.time("list", () -> Arrays.asList(1, 2, 3));
+		Assert.assertEquals(3, result.size());
+		stats.time("list", () -> Arrays.asList(4));
+		stats.time("single", () -> "x");
+		stats.run("update", () -> {});
+
+		List<QueryStats.Entry> entries = stats.getEntries();
+		Assert.assertEquals(3, entries.size());
+
+		for (QueryStats.Entry e : entries) {
+			switch (e.getName()) {
+			case "list":
+				Assert.assertEquals(2, e.getCalls());
+				Assert.assertEquals(4, e.getRows());
+				break;
+			case "single":
+				Assert.assertEquals(1, e.getCalls());
+				Assert.assertEquals(1, e.getRows());
+				break;
+			case "update":
+				Assert.assertEquals(0, e.getRows());
+				break;
+			default:
+				Assert.fail("unexpected entry " + e.getName());
+			}
+		}
+	}
+
+	@Test
+	public void testException() {
+		QueryStats stats = new QueryStats();
+
+		try {
+			stats.time("failing", () -> {
+				throw new IllegalStateException();
+			});
+			Assert.fail("exception expected");
+		} catch (IllegalStateException e) {
+		}
+
+		Assert.assertEquals(1, stats.getEntries().get(0).getCalls());
+	}
+}
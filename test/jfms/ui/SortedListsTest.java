@@ -0,0 +1,85 @@
+package jfms.ui;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SortedListsTest {
+	private static class Node {
+		private final long timestamp;
+
+		public Node(long timestamp) {
+			this.timestamp = timestamp;
+		}
+	}
+
+	private long comparisons;
+	private final Comparator<Node> comparator = (n1, n2) -> {
+		comparisons++;
+		return Long.compare(n1.timestamp, n2.timestamp);
+	};
+
+	@Test
+	public void testAddKeepsArrivalOrder() {
+		List<Node> list = new ArrayList<>();
+		Node first = new Node(2);
+		Node second = new Node(2);
+		SortedLists.add(list, new Node(3), comparator);
+		SortedLists.add(list, first, comparator);
+		SortedLists.add(list, new Node(1), comparator);
+		SortedLists.add(list, second, comparator);
+
+		Assert.assertEquals(4, list.size());
+		Assert.assertSame(first, list.get(1));
+		Assert.assertSame(second, list.get(2));
+	}
+
+	@Test
+	public void testRemoveByIdentity() {
+		List<Node> list = new ArrayList<>();
+		List<Node> equal = new ArrayList<>();
+		for (int i=0; i<10; i++) {
+			Node node = new Node(5);
+			equal.add(node);
+			SortedLists.add(list, node, comparator);
+		}
+
+		Assert.assertTrue(SortedLists.remove(list, equal.get(7), comparator));
+		Assert.assertFalse(list.contains(equal.get(7)));
+		Assert.assertFalse(SortedLists.remove(list, new Node(5), comparator));
+		Assert.assertEquals(9, list.size());
+	}
+
+	@Test
+	public void testReparentManyOrphans() {
+		// large root list, every other top level node is an orphan whose
+		// parent arrives later
+		final int size = 100000;
+		List<Node> roots = new ArrayList<>(size);
+		List<Node> orphans = new ArrayList<>();
+		for (int i=0; i<size; i++) {
+			Node node = new Node(i / 4);
+			roots.add(node);
+			if (i % 2 == 0) {
+				orphans.add(node);
+			}
+		}
+
+		comparisons = 0;
+		for (Node orphan : orphans) {
+			Assert.assertTrue(SortedLists.remove(roots, orphan, comparator));
+		}
+
+		Assert.assertEquals(size - orphans.size(), roots.size());
+		for (int i=1; i<roots.size(); i++) {
+			Assert.assertTrue(roots.get(i - 1).timestamp <=
+					roots.get(i).timestamp);
+		}
+		// binary search: about log2(size) + equal range per orphan
+		Assert.assertTrue("comparisons: " + comparisons,
+				comparisons < orphans.size() * 30L);
+	}
+}
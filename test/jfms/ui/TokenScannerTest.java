@@ -0,0 +1,164 @@
+package jfms.ui;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenScannerTest {
+	private static final String KEY =
+		"SSK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQ," +
+		"abcdefghijklmnopqrstuvwxyz~-CDEFGHIJKLMNOPQ,AQACAAE/site-1/";
+
+	// previous regex based implementation, used as reference
+	private static final Pattern URI_PATTERN = Pattern.compile(
+			"(CHK|SSK|USK)@[\\p{Alnum}~-]{43},[\\p{Alnum}~-]{43},[\\p{Alnum}~-]{7}(/[\\p{Alnum}\\-#._~%!$&'()*+,;=:@]*)*");
+	private static final Pattern EMOTICON_PATTERN;
+
+	static {
+		StringBuilder str = new StringBuilder();
+		for (String icon : Emoticons.getPatterns()) {
+			if (str.length() > 0) {
+				str.append('|');
+			}
+			str.append(Pattern.quote(icon));
+		}
+		EMOTICON_PATTERN = Pattern.compile(str.toString());
+	}
+
+	private static int regexScan(String text) {
+		final String[] icons = Emoticons.getPatterns();
+		final Matcher keyMatcher = URI_PATTERN.matcher(text);
+		final Matcher emoticonMatcher = EMOTICON_PATTERN.matcher(text);
+
+		int tokens = 0;
+		int pos = 0;
+		while (pos < text.length()) {
+			keyMatcher.region(pos, text.length());
+			if (keyMatcher.lookingAt()) {
+				tokens++;
+				pos = keyMatcher.end();
+				continue;
+			}
+
+			emoticonMatcher.region(pos, text.length());
+			if (emoticonMatcher.lookingAt()) {
+				final String match = emoticonMatcher.group();
+				for (int i=0; i<icons.length; i++) {
+					if (icons[i].equals(match)) {
+						tokens++;
+						break;
+					}
+				}
+				pos = emoticonMatcher.end();
+				continue;
+			}
+
+			pos++;
+		}
+
+		return tokens;
+	}
+
+	private static int scannerScan(String text) {
+		final TokenScanner scanner = new TokenScanner();
+
+		int tokens = 0;
+		int pos = 0;
+		while (pos < text.length()) {
+			if (scanner.scan(text, pos, text.length(), true, true) !=
+					TokenScanner.NONE) {
+				tokens++;
+				pos = scanner.getEnd();
+			} else {
+				pos++;
+			}
+		}
+
+		return tokens;
+	}
+
+	private static String repeat(String str, int length) {
+		StringBuilder body = new StringBuilder();
+		while (body.length() < length) {
+			body.append(str);
+		}
+
+		return body.toString();
+	}
+
+	private static void compare(String body) {
+		Assert.assertEquals(regexScan(body), scannerScan(body));
+	}
+
+	@Test
+	public void testEmoticons() {
+		final String[] icons = Emoticons.getPatterns();
+		for (int i=0; i<icons.length; i++) {
+			final int index = TokenScanner.matchEmoticon(icons[i], 0,
+					icons[i].length());
+			Assert.assertEquals(icons[i], icons[index]);
+		}
+
+		// longest match wins
+		Assert.assertEquals(":-))", icons[TokenScanner.matchEmoticon(
+					":-)))", 0, 5)]);
+		Assert.assertEquals(":-)", icons[TokenScanner.matchEmoticon(
+					":-)))", 0, 3)]);
+		Assert.assertEquals(-1, TokenScanner.matchEmoticon(":-", 0, 2));
+		Assert.assertEquals(-1, TokenScanner.matchEmoticon("a:-)", 0, 4));
+	}
+
+	@Test
+	public void testKeys() {
+		Assert.assertEquals(KEY.length(),
+				TokenScanner.matchKey(KEY, 0, KEY.length()));
+		Assert.assertEquals(KEY.length(),
+				TokenScanner.matchKey(KEY + " x", 0, KEY.length() + 2));
+		// ? (query) is not allowed
+		Assert.assertEquals(KEY.length(),
+				TokenScanner.matchKey(KEY + "?a=b", 0, KEY.length() + 4));
+		Assert.assertEquals(-1, TokenScanner.matchKey("KSK@test", 0, 8));
+		Assert.assertEquals(-1, TokenScanner.matchKey(KEY, 0, 50));
+		Assert.assertEquals(-1,
+				TokenScanner.matchKey(KEY.replace(',', '.'), 0, KEY.length()));
+
+		final String chk = KEY.substring(0, 100).replace("SSK", "CHK");
+		Assert.assertEquals(100, TokenScanner.matchKey(chk, 0, 100));
+
+		TokenScanner scanner = new TokenScanner();
+		Assert.assertEquals(TokenScanner.NONE,
+				scanner.scan(KEY, 0, KEY.length(), true, false));
+		Assert.assertEquals(TokenScanner.KEY,
+				scanner.scan(KEY, 0, KEY.length(), false, true));
+		Assert.assertEquals(KEY.length(), scanner.getEnd());
+	}
+
+	@Test
+	public void testRealisticBody() {
+		compare(repeat(
+				"> Some quoted text from an earlier message :-)\n" +
+				"Thanks for the link! You can find the files at\n" +
+				KEY + "index.html\n" +
+				"or USK@ (sorry, no key). Regards ;)\n\n", 4096));
+	}
+
+	@Test
+	public void testAdversarialBody() {
+		// near-miss keys
+		compare(repeat(
+				"CHK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOP," +
+				"SSK@abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQ,x ", 4096));
+		// emoticon prefixes
+		compare(repeat(":-:-:-;0:-:-", 4096));
+	}
+
+	@Test
+	public void testLongPath() {
+		// no recursion per path segment
+		final String body = KEY + repeat("/a.b", 64 * 1024);
+		Assert.assertEquals(body.length(),
+				TokenScanner.matchKey(body, 0, body.length()));
+	}
+}